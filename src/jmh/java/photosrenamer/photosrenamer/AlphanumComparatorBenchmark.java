@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2004-2026, Sualeh Fatehi <sualeh@hotmail.com>
+ * This work is licensed under the Creative Commons Attribution-Noncommercial-No Derivative Works 3.0 License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/3.0/
+ * or send a letter to Creative Commons, 543 Howard Street, 5th Floor, San Francisco, California, 94105, USA.
+ */
+package photosrenamer.photosrenamer;
+
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the cost of comparing file paths with the previous alphanum comparator, which copied
+ * each chunk into a new string, and with the current one, which compares ranges of the paths. {@link
+ * AlphanumComparatorCheck} checks that both give the same results. Run
+ * with the GC profiler, which the benchmarks profile adds, to see the allocation rate: the current
+ * comparator should show no bytes allocated per operation.
+ *
+ * @author Sualeh Fatehi
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AlphanumComparatorBenchmark {
+
+  private static final int PATH_COUNT = 1024;
+
+  private final Comparator<String> chunkCopyingComparator = new ChunkCopyingComparator();
+  private final Comparator<String> alphanumComparator = new AlphanumComparator();
+  private String[] paths;
+
+  @Benchmark
+  @OperationsPerInvocation(PATH_COUNT)
+  public int chunkCopying() {
+    return compareAll(chunkCopyingComparator);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(PATH_COUNT)
+  public int ranges() {
+    return compareAll(alphanumComparator);
+  }
+
+  @Setup
+  public void setUp() {
+    // Paths in a photo archive, which differ mostly in the numbers near the end
+    final Random random = new Random(PATH_COUNT);
+    final String[] stems = {"IMG_", "DSC", "Holiday 2019 - ", "photo_", "P10"};
+    paths = new String[PATH_COUNT];
+    for (int i = 0; i < PATH_COUNT; i++) {
+      paths[i] =
+          "/home/user/Pictures/%d/%02d/%s%04d.jpg"
+              .formatted(
+                  2010 + random.nextInt(15),
+                  1 + random.nextInt(12),
+                  stems[random.nextInt(stems.length)],
+                  random.nextInt(10_000));
+    }
+  }
+
+  private int compareAll(final Comparator<String> comparator) {
+    int sum = 0;
+    for (int i = 0; i < PATH_COUNT; i++) {
+      sum = sum + Integer.signum(comparator.compare(paths[i], paths[(i + 1) % PATH_COUNT]));
+    }
+    return sum;
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2004-2026, Sualeh Fatehi <sualeh@hotmail.com>
+ * This work is licensed under the Creative Commons Attribution-Noncommercial-No Derivative Works 3.0 License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/3.0/
+ * or send a letter to Creative Commons, 543 Howard Street, 5th Floor, San Francisco, California, 94105, USA.
+ */
+package photosrenamer.photosrenamer;
+
+import java.io.PrintStream;
+import java.util.Comparator;
+import java.util.Random;
+
+/**
+ * Checks that the alphanum comparator, which compares ranges of the strings, gives exactly the same
+ * results as the previous comparator, which copied each chunk into a new string. Random pairs of
+ * strings are compared with both, in both orders, and the first pair that gives different results
+ * is reported. Strings are made up of digits, letters, separators and characters outside ASCII,
+ * and half of the pairs share a prefix, so that chunks after the first are compared too.
+ *
+ * <p>The number of pairs is set with the "photosrenamer.alphanumcheck.pairs" system property, and
+ * defaults to 3 million. The random seed is set with "photosrenamer.alphanumcheck.seed".
+ *
+ * @author Sualeh Fatehi
+ */
+final class AlphanumComparatorCheck {
+
+  private static final String CHARACTERS = "0123456789000aAbBzZ_-. /é１";
+  private static final int MAX_LENGTH = 24;
+
+  /**
+   * Runs the check, and exits with a non-zero status if the comparators differ.
+   *
+   * @param args Not used
+   */
+  public static void main(final String[] args) {
+    final long pairs = Long.getLong("photosrenamer.alphanumcheck.pairs", 3_000_000);
+    final long seed = Long.getLong("photosrenamer.alphanumcheck.seed", 20_040_101);
+
+    final AlphanumComparatorCheck check = new AlphanumComparatorCheck(new Random(seed));
+    final PrintStream out = System.out;
+    final String mismatch = check.run(pairs);
+    if (mismatch != null) {
+      out.printf("Comparators differ, with seed %d: %s%n", seed, mismatch);
+      System.exit(1);
+    }
+    out.printf("Comparators agree on %,d random pairs, with seed %d%n", pairs, seed);
+  }
+
+  private final Random random;
+  private final Comparator<String> chunkCopyingComparator;
+  private final Comparator<String> alphanumComparator;
+
+  private AlphanumComparatorCheck(final Random random) {
+    this.random = random;
+    chunkCopyingComparator = new ChunkCopyingComparator();
+    alphanumComparator = new AlphanumComparator();
+  }
+
+  private String check(final String s1, final String s2) {
+    final int expected = chunkCopyingComparator.compare(s1, s2);
+    final int actual = alphanumComparator.compare(s1, s2);
+    if (expected != actual) {
+      return "compare(\"%s\", \"%s\") was %d instead of %d".formatted(s1, s2, actual, expected);
+    }
+    return null;
+  }
+
+  private String randomString() {
+    final int length = random.nextInt(MAX_LENGTH + 1);
+    final StringBuilder buffer = new StringBuilder(length);
+    for (int i = 0; i < length; i++) {
+      buffer.append(CHARACTERS.charAt(random.nextInt(CHARACTERS.length())));
+    }
+    return buffer.toString();
+  }
+
+  private String run(final long pairs) {
+    for (long i = 0; i < pairs; i++) {
+      final String s1 = randomString();
+      String s2 = randomString();
+      if (random.nextBoolean()) {
+        // Share a prefix, so that the strings differ only in later chunks
+        s2 = s1.substring(0, random.nextInt(s1.length() + 1)) + s2.substring(s2.length() / 2);
+      }
+
+      String mismatch = check(s1, s2);
+      if (mismatch == null) {
+        mismatch = check(s2, s1);
+      }
+      if (mismatch != null) {
+        return mismatch;
+      }
+    }
+    return null;
+  }
+}
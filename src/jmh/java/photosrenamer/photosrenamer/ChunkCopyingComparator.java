@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2004-2026, Sualeh Fatehi <sualeh@hotmail.com>
+ * This work is licensed under the Creative Commons Attribution-Noncommercial-No Derivative Works 3.0 License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/3.0/
+ * or send a letter to Creative Commons, 543 Howard Street, 5th Floor, San Francisco, California, 94105, USA.
+ */
+package photosrenamer.photosrenamer;
+
+import java.util.Comparator;
+
+/**
+ * Previous alphanum comparator, which copied each chunk into a new string, reproduced here to
+ * benchmark and check the current one against.
+ *
+ * @author Sualeh Fatehi
+ */
+final class ChunkCopyingComparator implements Comparator<String> {
+
+  @Override
+  public int compare(final String s1, final String s2) {
+    int thisMarker = 0;
+    int thatMarker = 0;
+    final int s1Length = s1.length();
+    final int s2Length = s2.length();
+
+    while (thisMarker < s1Length && thatMarker < s2Length) {
+      final String thisChunk = getChunk(s1, s1Length, thisMarker);
+      thisMarker += thisChunk.length();
+
+      final String thatChunk = getChunk(s2, s2Length, thatMarker);
+      thatMarker += thatChunk.length();
+
+      int result = 0;
+      if (isDigit(thisChunk.charAt(0)) && isDigit(thatChunk.charAt(0))) {
+        final int thisChunkLength = thisChunk.length();
+        result = thisChunkLength - thatChunk.length();
+        if (result == 0) {
+          for (int i = 0; i < thisChunkLength; i++) {
+            result = thisChunk.charAt(i) - thatChunk.charAt(i);
+            if (result != 0) {
+              return result;
+            }
+          }
+        }
+      } else {
+        result = thisChunk.compareTo(thatChunk);
+      }
+
+      if (result != 0) {
+        return result;
+      }
+    }
+
+    return s1Length - s2Length;
+  }
+
+  private String getChunk(final String s, final int slength, int marker) {
+    final StringBuilder chunk = new StringBuilder();
+    char c = s.charAt(marker);
+    chunk.append(c);
+    marker++;
+    if (isDigit(c)) {
+      while (marker < slength) {
+        c = s.charAt(marker);
+        if (!isDigit(c)) {
+          break;
+        }
+        chunk.append(c);
+        marker++;
+      }
+    } else {
+      while (marker < slength) {
+        c = s.charAt(marker);
+        if (isDigit(c)) {
+          break;
+        }
+        chunk.append(c);
+        marker++;
+      }
+    }
+    return chunk.toString();
+  }
+
+  private boolean isDigit(final char ch) {
+    return ch >= 48 && ch <= 57;
+  }
+}
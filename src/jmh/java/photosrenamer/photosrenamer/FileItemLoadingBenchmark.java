@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2004-2026, Sualeh Fatehi <sualeh@hotmail.com>
+ * This work is licensed under the Creative Commons Attribution-Noncommercial-No Derivative Works 3.0 License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/3.0/
+ * or send a letter to Creative Commons, 543 Howard Street, 5th Floor, San Francisco, California, 94105, USA.
+ */
+package photosrenamer.photosrenamer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures loading the metadata and the thumbnail of a file item, for JPEG, TIFF and PNG files. The
+ * JPEG file has camera-like metadata and an embedded thumbnail, and the other files have none, so
+ * their thumbnails are scaled from the image. Nothing is cached between operations.
+ *
+ * @author Sualeh Fatehi
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileItemLoadingBenchmark {
+
+  private static final int IMAGE_WIDTH = 2000;
+
+  /** Image I/O format of the sample file. */
+  @Param({"jpeg", "tiff", "png"})
+  public String format;
+
+  private Path directory;
+  private Path file;
+
+  @Benchmark
+  public FileItem loadMetadata() {
+    final FileItem fileItem = new FileItem(file);
+    fileItem.loadMetadata();
+    return fileItem;
+  }
+
+  @Benchmark
+  public FileItem loadThumbnail() {
+    ThumbnailCache.getInstance().clear();
+    final FileItem fileItem = new FileItem(file);
+    fileItem.loadThumbnail();
+    return fileItem;
+  }
+
+  @Setup
+  public void setUp() throws IOException {
+    directory = SampleImages.createDirectory();
+    file = directory.resolve("IMG_0001." + format);
+    if (format.equals("jpeg")) {
+      SampleImages.writeJpeg(file, IMAGE_WIDTH, LocalDateTime.of(2020, 1, 1, 12, 0), 1);
+    } else {
+      SampleImages.writeImage(file, format, IMAGE_WIDTH, 1);
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    SampleImages.deleteDirectory(directory);
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2004-2026, Sualeh Fatehi <sualeh@hotmail.com>
+ * This work is licensed under the Creative Commons Attribution-Noncommercial-No Derivative Works 3.0 License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/3.0/
+ * or send a letter to Creative Commons, 543 Howard Street, 5th Floor, San Francisco, California, 94105, USA.
+ */
+package photosrenamer.photosrenamer;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares sorting file items with the file comparators, which work out the sort keys on every
+ * comparison, and with the file sorter, which works them out once for each item. File items are
+ * created from made-up paths and attributes, so no files are needed. Each sort starts from the
+ * same shuffled order.
+ *
+ * @author Sualeh Fatehi
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileSortBenchmark {
+
+  /** File attributes for a file that does not exist. */
+  private static final class SampleAttributes implements BasicFileAttributes {
+
+    private final FileTime time;
+    private final long size;
+
+    SampleAttributes(final FileTime time, final long size) {
+      this.time = time;
+      this.size = size;
+    }
+
+    @Override
+    public FileTime creationTime() {
+      return time;
+    }
+
+    @Override
+    public Object fileKey() {
+      return null;
+    }
+
+    @Override
+    public boolean isDirectory() {
+      return false;
+    }
+
+    @Override
+    public boolean isOther() {
+      return false;
+    }
+
+    @Override
+    public boolean isRegularFile() {
+      return true;
+    }
+
+    @Override
+    public boolean isSymbolicLink() {
+      return false;
+    }
+
+    @Override
+    public FileTime lastAccessTime() {
+      return time;
+    }
+
+    @Override
+    public FileTime lastModifiedTime() {
+      return time;
+    }
+
+    @Override
+    public long size() {
+      return size;
+    }
+  }
+
+  /** Number of file items to sort. */
+  @Param({"1000", "10000", "100000"})
+  public int itemCount;
+
+  private List<FileItem> fileItems;
+
+  @Benchmark
+  public List<FileItem> fileComparatorByDate() {
+    final List<FileItem> sorted = new ArrayList<>(fileItems);
+    Collections.sort(sorted, FileComparator.BY_DATE);
+    return sorted;
+  }
+
+  @Benchmark
+  public List<FileItem> fileComparatorByName() {
+    final List<FileItem> sorted = new ArrayList<>(fileItems);
+    Collections.sort(sorted, FileComparator.BY_NAME);
+    return sorted;
+  }
+
+  @Benchmark
+  public List<FileItem> fileSorterByDateThenName() {
+    final List<FileItem> sorted = new ArrayList<>(fileItems);
+    FileSorter.sort(sorted, FileComparator.BY_DATE, FileComparator.BY_NAME);
+    return sorted;
+  }
+
+  @Benchmark
+  public List<FileItem> fileSorterByName() {
+    final List<FileItem> sorted = new ArrayList<>(fileItems);
+    FileSorter.sort(sorted, FileComparator.BY_NAME);
+    return sorted;
+  }
+
+  @Setup
+  public void setUp() {
+    // Photos from a few cameras in a directory per month, some taken in the same second
+    final Random random = new Random(itemCount);
+    final String[] stems = {"IMG_", "DSC", "Holiday 2019 - ", "photo_", "P10"};
+    final long start = 1_262_304_000_000L; // 2010-01-01
+    fileItems = new ArrayList<>(itemCount);
+    for (int i = 0; i < itemCount; i++) {
+      final Path file =
+          Path.of(
+              "/home/user/Pictures/%d/%02d/%s%04d.jpg"
+                  .formatted(
+                      2010 + random.nextInt(15),
+                      1 + random.nextInt(12),
+                      stems[random.nextInt(stems.length)],
+                      random.nextInt(10_000)));
+      final FileTime time =
+          FileTime.fromMillis(start + random.nextInt(itemCount) * 1000L * 60 * 60);
+      final BasicFileAttributes attributes = new SampleAttributes(time, random.nextInt(1 << 24));
+      fileItems.add(new FileItem(file, attributes, null));
+    }
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2004-2026, Sualeh Fatehi <sualeh@hotmail.com>
+ * This work is licensed under the Creative Commons Attribution-Noncommercial-No Derivative Works 3.0 License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/3.0/
+ * or send a letter to Creative Commons, 543 Howard Street, 5th Floor, San Francisco, California, 94105, USA.
+ */
+package photosrenamer.photosrenamer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures renaming a directory of files, on a memory-backed file system where there is one, so
+ * that planning, journaling and moving are measured rather than the disk. Files are empty, since
+ * renaming does not read them. Each rename gives all the files a new stem, in a shuffled order, so
+ * every file is moved.
+ *
+ * @author Sualeh Fatehi
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilesRenamerBenchmark {
+
+  /** Number of files to rename. */
+  @Param({"1000", "10000"})
+  public int fileCount;
+
+  /** Number of files moved at the same time. */
+  @Param({"1", "4"})
+  public int parallelism;
+
+  private Path directory;
+  private List<Path> files;
+  private Random random;
+  private int renameCount;
+
+  @Benchmark
+  public List<Path> rename() {
+    renameCount = renameCount + 1;
+    final String fileStem = renameCount % 2 == 0 ? "even" : "odd";
+
+    Collections.shuffle(files, random);
+    new FilesRenamer(directory, files, fileStem, parallelism).rename();
+
+    final List<Path> renamedFiles = new ArrayList<>(fileCount);
+    for (int i = 0; i < fileCount; i++) {
+      renamedFiles.add(RenamePlan.targetName(files.get(i), fileStem, i + 1));
+    }
+    files = renamedFiles;
+    return files;
+  }
+
+  @Setup
+  public void setUp() throws IOException {
+    directory = SampleImages.createDirectory();
+    files = new ArrayList<>(fileCount);
+    for (int i = 1; i <= fileCount; i++) {
+      files.add(Files.createFile(directory.resolve("IMG_%05d.jpg".formatted(i))));
+    }
+    random = new Random(fileCount);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    SampleImages.deleteDirectory(directory);
+  }
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright (c) 2004-2026, Sualeh Fatehi <sualeh@hotmail.com>
+ * This work is licensed under the Creative Commons Attribution-Noncommercial-No Derivative Works 3.0 License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/3.0/
+ * or send a letter to Creative Commons, 543 Howard Street, 5th Floor, San Francisco, California, 94105, USA.
+ */
+package photosrenamer.photosrenamer;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.SwingUtilities;
+import photosrenamer.gui.FileItemListModel;
+
+/**
+ * End-to-end load test, without a display. For each directory size, a directory of synthetic
+ * photos is generated, and then opened, sorted by date, and renamed through the same list model
+ * and renamer as the application, and finally opened again with the metadata cache filled. Wall
+ * time, throughput, peak resident memory and garbage collection are reported for each stage.
+ *
+ * <p>The directory sizes are set with the "photosrenamer.loadtest.files" system property, as a
+ * comma-separated list, and default to 1000 and 10000. Photos are generated in a temporary
+ * directory, or in the directory set with the "photosrenamer.loadtest.dir" system property, and are
+ * deleted afterwards unless "photosrenamer.loadtest.keep" is true. The photos themselves can be
+ * set up with the sample corpus system properties.
+ *
+ * @author Sualeh Fatehi
+ */
+final class LoadTest {
+
+  /** Measurements of one stage of the load test. */
+  private static final class StageResult {
+
+    private final String stage;
+    private final int fileCount;
+    private final long nanos;
+    private final long peakRssKb;
+    private final long gcCount;
+    private final long gcMillis;
+
+    StageResult(
+        final String stage,
+        final int fileCount,
+        final long nanos,
+        final long peakRssKb,
+        final long gcCount,
+        final long gcMillis) {
+      this.stage = stage;
+      this.fileCount = fileCount;
+      this.nanos = nanos;
+      this.peakRssKb = peakRssKb;
+      this.gcCount = gcCount;
+      this.gcMillis = gcMillis;
+    }
+
+    @Override
+    public String toString() {
+      final double seconds = nanos / 1e9;
+      return "%-10s %9d %10d %10.0f %12s %9d %9d"
+          .formatted(
+              stage,
+              fileCount,
+              TimeUnit.NANOSECONDS.toMillis(nanos),
+              seconds > 0 ? fileCount / seconds : 0,
+              peakRssKb < 0 ? "n/a" : Long.toString(peakRssKb / 1024),
+              gcCount,
+              gcMillis);
+    }
+  }
+
+  /** A stage of the load test. */
+  private interface Stage {
+
+    void run() throws Exception;
+  }
+
+  private static final Path PROC_STATUS = Path.of("/proc/self/status");
+  private static final Path PROC_CLEAR_REFS = Path.of("/proc/self/clear_refs");
+
+  private static final long POLL_MILLIS = 10;
+
+  /**
+   * Runs the load test.
+   *
+   * @param args Not used
+   * @throws Exception On an exception in any stage
+   */
+  public static void main(final String[] args) throws Exception {
+    final String directoryName = System.getProperty("photosrenamer.loadtest.dir");
+    final Path root =
+        directoryName == null
+            ? Files.createTempDirectory("photosrenamer-loadtest")
+            : Files.createDirectories(Path.of(directoryName));
+    if (System.getProperty("photosrenamer.cache.dir") == null) {
+      // Start with an empty metadata cache and thumbnail store
+      System.setProperty("photosrenamer.cache.dir", root.resolve("cache").toString());
+    }
+    Logger.getGlobal().setLevel(Level.WARNING);
+
+    final List<Integer> fileCounts = new ArrayList<>();
+    for (final String fileCount :
+        System.getProperty("photosrenamer.loadtest.files", "1000,10000").split(",")) {
+      fileCounts.add(Integer.parseInt(fileCount.trim()));
+    }
+
+    final LoadTest loadTest = new LoadTest(root, SampleCorpus.fromSystemProperties());
+    final PrintStream out = System.out;
+    out.printf(
+        "Load test in %s, %s, on %d processors, %d MB maximum heap%n",
+        root,
+        loadTest.corpus,
+        Runtime.getRuntime().availableProcessors(),
+        Runtime.getRuntime().maxMemory() / (1024 * 1024));
+    out.printf(
+        "%-10s %9s %10s %10s %12s %9s %9s%n",
+        "Stage", "Files", "Wall ms", "Files/s", "Peak RSS MB", "GC count", "GC ms");
+    for (final int fileCount : fileCounts) {
+      for (final StageResult result : loadTest.run(fileCount)) {
+        out.println(result);
+      }
+    }
+
+    if (directoryName == null && !Boolean.getBoolean("photosrenamer.loadtest.keep")) {
+      deleteDirectory(root);
+    }
+    System.exit(0);
+  }
+
+  private static void awaitIdle(final FileItemListModel model) throws Exception {
+    final AtomicReference<Boolean> busy = new AtomicReference<>(true);
+    while (busy.get()) {
+      TimeUnit.MILLISECONDS.sleep(POLL_MILLIS);
+      SwingUtilities.invokeAndWait(() -> busy.set(model.isLoading() || model.isPrefetching()));
+    }
+  }
+
+  private static void deleteDirectory(final Path directory) throws IOException {
+    if (Files.isDirectory(directory)) {
+      SampleImages.deleteDirectory(directory);
+    }
+  }
+
+  /**
+   * Peak resident memory of this process since it was last reset, on Linux.
+   *
+   * @return Peak resident memory in kilobytes, or -1 if it is not known
+   */
+  private static long peakRssKb() {
+    try {
+      for (final String line : Files.readAllLines(PROC_STATUS)) {
+        if (line.startsWith("VmHWM:")) {
+          return Long.parseLong(line.replaceAll("[^0-9]", ""));
+        }
+      }
+    } catch (final IOException | NumberFormatException e) {
+      // Not known on this platform
+    }
+    return -1;
+  }
+
+  private static void resetPeakRss() {
+    try {
+      Files.writeString(PROC_CLEAR_REFS, "5");
+    } catch (final IOException e) {
+      // Not supported on this platform, so the peak is for the whole run
+    }
+  }
+
+  private final Path root;
+  private final SampleCorpus corpus;
+
+  private LoadTest(final Path root, final SampleCorpus corpus) {
+    this.root = root;
+    this.corpus = corpus;
+  }
+
+  private long[] gcTotals() {
+    long count = 0;
+    long millis = 0;
+    for (final GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      count = count + Math.max(0, gc.getCollectionCount());
+      millis = millis + Math.max(0, gc.getCollectionTime());
+    }
+    return new long[] {count, millis};
+  }
+
+  private StageResult measure(final String stageName, final int fileCount, final Stage stage)
+      throws Exception {
+    resetPeakRss();
+    final long[] gcBefore = gcTotals();
+    final long startNanos = System.nanoTime();
+
+    stage.run();
+
+    final long nanos = System.nanoTime() - startNanos;
+    final long[] gcAfter = gcTotals();
+    return new StageResult(
+        stageName,
+        fileCount,
+        nanos,
+        peakRssKb(),
+        gcAfter[0] - gcBefore[0],
+        gcAfter[1] - gcBefore[1]);
+  }
+
+  private List<StageResult> run(final int fileCount) throws Exception {
+    final Path directory = root.resolve("photos-" + fileCount);
+    deleteDirectory(directory);
+
+    final AtomicReference<FileItemListModel> model = new AtomicReference<>();
+    SwingUtilities.invokeAndWait(() -> model.set(new FileItemListModel()));
+
+    final List<StageResult> results = new ArrayList<>();
+    try {
+      results.add(measure("generate", fileCount, () -> corpus.write(directory, fileCount)));
+
+      results.add(
+          measure(
+              "open",
+              fileCount,
+              () -> {
+                SwingUtilities.invokeAndWait(() -> model.get().setWorkingDirectory(directory));
+                awaitIdle(model.get());
+              }));
+
+      results.add(
+          measure(
+              "sort",
+              fileCount,
+              () -> SwingUtilities.invokeAndWait(() -> model.get().sort(FileComparator.BY_DATE))));
+
+      results.add(
+          measure(
+              "rename",
+              fileCount,
+              () -> {
+                final AtomicReference<List<Path>> files = new AtomicReference<>();
+                SwingUtilities.invokeAndWait(
+                    () -> {
+                      files.set(model.get().getFiles());
+                      model.get().renaming();
+                    });
+                final Map<Path, Path> renames =
+                    new FilesRenamer(directory, files.get(), "loadtest").rename();
+                SwingUtilities.invokeAndWait(() -> model.get().renamed(renames));
+              }));
+
+      results.add(
+          measure(
+              "reopen",
+              fileCount,
+              () -> {
+                SwingUtilities.invokeAndWait(() -> model.get().load());
+                awaitIdle(model.get());
+              }));
+    } finally {
+      SwingUtilities.invokeAndWait(() -> model.get().setWorkingDirectory(null));
+      if (!Boolean.getBoolean("photosrenamer.loadtest.keep")) {
+        deleteDirectory(directory);
+      }
+    }
+    return results;
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2004-2026, Sualeh Fatehi <sualeh@hotmail.com>
+ * This work is licensed under the Creative Commons Attribution-Noncommercial-No Derivative Works 3.0 License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/3.0/
+ * or send a letter to Creative Commons, 543 Howard Street, 5th Floor, San Francisco, California, 94105, USA.
+ */
+package photosrenamer.photosrenamer;
+
+import com.drew.imaging.ImageMetadataReader;
+import com.drew.metadata.Metadata;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares reading the metadata of a JPEG file with the image metadata reader, which parses every
+ * segment, and with the selective reader, which reads only the EXIF and IPTC segments. The sample
+ * photo has XMP and ICC profile segments as well, like photos from most cameras.
+ *
+ * @author Sualeh Fatehi
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetadataReadingBenchmark {
+
+  /** Width of the sample photo. */
+  @Param({"1024", "4000"})
+  public int imageWidth;
+
+  private Path directory;
+  private Path file;
+
+  @Benchmark
+  public Metadata imageMetadataReader() throws Exception {
+    return ImageMetadataReader.readMetadata(file.toFile());
+  }
+
+  @Benchmark
+  public Metadata selectedSegments() throws Exception {
+    final Metadata metadata = new Metadata();
+    EmbeddedThumbnail.readMetadataSegments(file, metadata);
+    return metadata;
+  }
+
+  @Setup
+  public void setUp() throws IOException {
+    directory = SampleImages.createDirectory();
+    file = directory.resolve("IMG_0001.jpg");
+    SampleImages.writeJpeg(file, imageWidth, LocalDateTime.of(2020, 1, 1, 12, 0), 1);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    SampleImages.deleteDirectory(directory);
+  }
+}
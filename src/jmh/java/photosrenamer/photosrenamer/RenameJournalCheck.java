@@ -0,0 +1,345 @@
+/*
+ * Copyright (c) 2004-2026, Sualeh Fatehi <sualeh@hotmail.com>
+ * This work is licensed under the Creative Commons Attribution-Noncommercial-No Derivative Works 3.0 License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/3.0/
+ * or send a letter to Creative Commons, 543 Howard Street, 5th Floor, San Francisco, California, 94105, USA.
+ */
+package photosrenamer.photosrenamer;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import photosrenamer.photosrenamer.RenamePlan.Move;
+
+/**
+ * Checks that renames, and renames that were stopped part of the way through, end with every file
+ * under the right name. Each trial renames a directory of small files, listed in one of these
+ * orders:
+ *
+ * <ul>
+ *   <li>a random mix of numbered and other names, which gives chains and cycles of moves
+ *   <li>one file inserted before a long run of numbered files, which gives a long chain that is
+ *       split into segments
+ *   <li>numbered files in reverse order, which gives many cycles of two moves
+ *   <li>numbered files rotated by one, which gives one long cycle
+ * </ul>
+ *
+ * <p>Each list is renamed once straight through. It is then renamed again from the start, with a
+ * crash injected part of the way through a random stage: the earlier stages are made and recorded
+ * in the journal, some of the moves in the stage are made, and the journal is closed without being
+ * completed, sometimes with a torn record at the end. The records of some of the last stages are
+ * left out, as if they had been lost in a system crash before they were forced to disk. The rename
+ * is then resumed from the journal, and the files must have their new names, or rolled back, and
+ * the files must have their old names again. Every file holds its original name, so that a file
+ * that is moved to the wrong name is found.
+ *
+ * <p>The number of trials is set with the "photosrenamer.renamecheck.trials" system property, and
+ * defaults to 400. The random seed is set with "photosrenamer.renamecheck.seed".
+ *
+ * @author Sualeh Fatehi
+ */
+final class RenameJournalCheck {
+
+  private static final String FILE_STEM = "check";
+
+  /**
+   * Runs the check, and exits with a non-zero status if any file ends up under the wrong name.
+   *
+   * @param args Not used
+   * @throws IOException On an exception setting up the files
+   */
+  public static void main(final String[] args) throws IOException {
+    final int trials = Integer.getInteger("photosrenamer.renamecheck.trials", 400);
+    final long seed = Long.getLong("photosrenamer.renamecheck.seed", 20_040_101);
+
+    // Every rename and recovery logs its plan
+    Logger.getGlobal().setLevel(Level.WARNING);
+
+    final Path root = Files.createTempDirectory("photosrenamer-renamecheck");
+    final PrintStream out = System.out;
+    final String failure;
+    try {
+      failure = new RenameJournalCheck(root, new Random(seed)).run(trials);
+    } finally {
+      delete(root);
+    }
+    if (failure != null) {
+      out.printf("Rename check failed, with seed %d: %s%n", seed, failure);
+      System.exit(1);
+    }
+    out.printf("Renames and recoveries are correct in %,d trials, with seed %d%n", trials, seed);
+  }
+
+  private static void delete(final Path directory) throws IOException {
+    try (Stream<Path> paths = Files.walk(directory)) {
+      for (final Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+        Files.delete(path);
+      }
+    }
+  }
+
+  private static void move(final Move move) throws IOException {
+    Files.move(move.getSource(), move.getTarget(), StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /** Finds the stages with a new name that a later stage moves on again. */
+  private static boolean[] movedOnStages(final List<List<Move>> stages) {
+    final boolean[] movedOn = new boolean[stages.size()];
+    final Set<Path> laterSources = new HashSet<>();
+    for (int i = stages.size() - 1; i >= 0; i--) {
+      for (final Move move : stages.get(i)) {
+        movedOn[i] = movedOn[i] || laterSources.contains(move.getTarget());
+      }
+      for (final Move move : stages.get(i)) {
+        laterSources.add(move.getSource());
+      }
+    }
+    return movedOn;
+  }
+
+  private static String numbered(final int number) {
+    return "%s_%04d.jpg".formatted(FILE_STEM, number);
+  }
+
+  /** Compares the files in a directory, and what they hold, with the expected files. */
+  private static String verify(final Path directory, final Map<String, String> expected)
+      throws IOException {
+    final Map<String, String> actual = new TreeMap<>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+      for (final Path file : files) {
+        actual.put(
+            file.getFileName().toString(),
+            Files.isRegularFile(file) ? Files.readString(file, StandardCharsets.UTF_8) : "");
+      }
+    }
+    for (final Map.Entry<String, String> entry : expected.entrySet()) {
+      final String content = actual.get(entry.getKey());
+      if (content == null) {
+        return "%s is missing".formatted(entry.getKey());
+      }
+      if (!content.equals(entry.getValue())) {
+        return "%s holds %s instead of %s".formatted(entry.getKey(), content, entry.getValue());
+      }
+    }
+    for (final String name : actual.keySet()) {
+      if (!expected.containsKey(name)) {
+        return "%s is left over".formatted(name);
+      }
+    }
+    return null;
+  }
+
+  private final Path root;
+  private final Random random;
+
+  private RenameJournalCheck(final Path root, final Random random) {
+    this.root = root;
+    this.random = random;
+  }
+
+  /** Renames part of the way, stops, and resumes or rolls back the rename from its journal. */
+  private String checkRecovery(final List<String> names, final int segments, final boolean resume)
+      throws IOException {
+    final Path directory = Files.createTempDirectory(root, "trial");
+    final List<Path> files = createFiles(directory, names);
+    final RenamePlan plan = RenamePlan.plan(files, FILE_STEM, segments);
+    final List<List<Move>> stages = plan.getStages();
+    if (stages.isEmpty()) {
+      return null;
+    }
+
+    // Stop part of the way through a stage, as if the rename had crashed. After a system crash,
+    // the records of the last stages can be lost, back to the last stage with names that are
+    // moved on again, which is always forced to disk.
+    final int crashStage = random.nextInt(stages.size());
+    final boolean[] movedOn = movedOnStages(stages);
+    int forcedStages = 0;
+    for (int i = 0; i < crashStage; i++) {
+      if (movedOn[i]) {
+        forcedStages = i + 1;
+      }
+    }
+    final int recordedStages = forcedStages + random.nextInt(crashStage - forcedStages + 1);
+    final RenameJournal journal = RenameJournal.create(directory, plan);
+    for (int i = 0; i < crashStage; i++) {
+      for (final Move move : stages.get(i)) {
+        move(move);
+      }
+      if (i < recordedStages) {
+        journal.stageDone();
+      }
+    }
+    for (final Move move : stages.get(crashStage)) {
+      if (random.nextBoolean()) {
+        move(move);
+      }
+    }
+    journal.close();
+    if (random.nextBoolean()) {
+      // A record of the stage that was running, cut short while it was being written
+      Files.write(
+          directory.resolve(RenameJournal.JOURNAL_FILE_NAME),
+          new byte[] {'D', 0, 0},
+          StandardOpenOption.APPEND);
+    }
+
+    final RenameJournal recovered = RenameJournal.open(directory);
+    final String failure;
+    if (resume) {
+      recovered.resume(segments);
+      failure = verify(directory, renamedFiles(files, names));
+    } else {
+      recovered.rollback(segments);
+      failure = verify(directory, originalFiles(names));
+    }
+    if (failure != null) {
+      return "%s after a crash in stage %d of %d, with %d stages recorded: %s"
+          .formatted(
+              resume ? "resumed" : "rolled back",
+              crashStage,
+              stages.size(),
+              recordedStages,
+              failure);
+    }
+    delete(directory);
+    return null;
+  }
+
+  /** Renames straight through. */
+  private String checkRename(final List<String> names, final int segments) throws IOException {
+    final Path directory = Files.createTempDirectory(root, "trial");
+    final List<Path> files = createFiles(directory, names);
+    new FilesRenamer(directory, files, FILE_STEM, segments).rename();
+    final String failure = verify(directory, renamedFiles(files, names));
+    if (failure != null) {
+      return "renamed: " + failure;
+    }
+    delete(directory);
+    return null;
+  }
+
+  private List<Path> createFiles(final Path directory, final List<String> names)
+      throws IOException {
+    final List<Path> files = new ArrayList<>(names.size());
+    for (final String name : names) {
+      files.add(Files.writeString(directory.resolve(name), name, StandardCharsets.UTF_8));
+    }
+    return files;
+  }
+
+  /** Numbered files, one of which is inserted before all the others. */
+  private List<String> insertedNames() {
+    final int size = 32 + random.nextInt(400);
+    final List<String> names = new ArrayList<>(size + 1);
+    names.add("inserted.jpg");
+    for (int i = 1; i <= size; i++) {
+      names.add(numbered(i));
+    }
+    return names;
+  }
+
+  private Map<String, String> originalFiles(final List<String> names) {
+    final Map<String, String> files = new TreeMap<>();
+    for (final String name : names) {
+      files.put(name, name);
+    }
+    return files;
+  }
+
+  /** A random mix of numbered files, some past the end of the list, and other files. */
+  private List<String> randomNames() {
+    final int size = 2 + random.nextInt(80);
+    final List<Integer> numbers = new ArrayList<>();
+    for (int i = 1; i <= size + size / 4; i++) {
+      numbers.add(i);
+    }
+    Collections.shuffle(numbers, random);
+
+    final List<String> names = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      names.add(random.nextInt(10) < 7 ? numbered(numbers.get(i)) : "photo%d.jpg".formatted(i));
+    }
+    Collections.shuffle(names, random);
+    return names;
+  }
+
+  private Map<String, String> renamedFiles(final List<Path> files, final List<String> names) {
+    final Map<String, String> renamedFiles = new TreeMap<>();
+    for (int i = 0; i < files.size(); i++) {
+      renamedFiles.put(
+          RenamePlan.targetName(files.get(i), FILE_STEM, i + 1).getFileName().toString(),
+          names.get(i));
+    }
+    return renamedFiles;
+  }
+
+  /** Numbered files in reverse order. */
+  private List<String> reversedNames() {
+    final int size = 2 + random.nextInt(200);
+    final List<String> names = new ArrayList<>(size);
+    for (int i = size; i >= 1; i--) {
+      names.add(numbered(i));
+    }
+    return names;
+  }
+
+  /** Numbered files, with the first one moved to the end. */
+  private List<String> rotatedNames() {
+    final int size = 2 + random.nextInt(400);
+    final List<String> names = new ArrayList<>(size);
+    for (int i = 2; i <= size; i++) {
+      names.add(numbered(i));
+    }
+    names.add(numbered(1));
+    return names;
+  }
+
+  private String run(final int trials) throws IOException {
+    for (int trial = 0; trial < trials; trial++) {
+      final List<String> names =
+          switch (trial % 4) {
+            case 0 -> randomNames();
+            case 1 -> insertedNames();
+            case 2 -> reversedNames();
+            default -> rotatedNames();
+          };
+      final int segments = 1 + random.nextInt(8);
+
+      String failure;
+      try {
+        failure = checkRename(names, segments);
+        if (failure == null) {
+          failure = checkRecovery(names, segments, true);
+        }
+        if (failure == null) {
+          failure = checkRecovery(names, segments, false);
+        }
+      } catch (final RuntimeException e) {
+        // A move failed, for example because a file was missing
+        failure = e.toString();
+      }
+      if (failure != null) {
+        return "trial %d, %d files, %d segments, %s".formatted(
+            trial, names.size(), segments, failure);
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2004-2026, Sualeh Fatehi <sualeh@hotmail.com>
+ * This work is licensed under the Creative Commons Attribution-Noncommercial-No Derivative Works 3.0 License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/3.0/
+ * or send a letter to Creative Commons, 543 Howard Street, 5th Floor, San Francisco, California, 94105, USA.
+ */
+package photosrenamer.photosrenamer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Generates a directory of synthetic photos, for load tests. Each photo is a JPEG file with an EXIF
+ * date and time taken, spread at random over a number of days, and optionally an embedded
+ * thumbnail and an IPTC caption. Photos are named in a different order from the dates they were
+ * taken, so that sorting by date and renaming moves every file. Only a few images are encoded, and
+ * they are shared by all the photos, so that large directories can be generated quickly.
+ *
+ * <p>Run with the directory and number of photos as arguments. The image width, number of days, and
+ * whether to add thumbnails and captions, can be set with the "photosrenamer.corpus.width",
+ * "photosrenamer.corpus.days", "photosrenamer.corpus.thumbnails" and
+ * "photosrenamer.corpus.captions" system properties.
+ *
+ * @author Sualeh Fatehi
+ */
+final class SampleCorpus {
+
+  private static final int IMAGE_VARIANTS = 8;
+
+  private static final LocalDateTime FIRST_DAY = LocalDateTime.of(2020, 1, 1, 0, 0);
+
+  /**
+   * Generates a directory of synthetic photos.
+   *
+   * @param args Directory and number of photos
+   * @throws IOException On an exception writing the photos
+   */
+  public static void main(final String[] args) throws IOException {
+    if (args.length != 2) {
+      System.err.println("Usage: SampleCorpus <directory> <number of photos>");
+      System.exit(2);
+    }
+    final Path directory = Path.of(args[0]);
+    final int fileCount = Integer.parseInt(args[1]);
+
+    final long startNanos = System.nanoTime();
+    fromSystemProperties().write(directory, fileCount);
+    System.out.printf(
+        "%s: %d photos in %d ms%n",
+        directory, fileCount, (System.nanoTime() - startNanos) / 1_000_000);
+  }
+
+  /**
+   * Creates a generator with the options from system properties.
+   *
+   * @return Sample corpus generator
+   * @throws IOException On an exception encoding the images
+   */
+  static SampleCorpus fromSystemProperties() throws IOException {
+    return new SampleCorpus(
+        Integer.getInteger("photosrenamer.corpus.width", 640),
+        Integer.getInteger("photosrenamer.corpus.days", 365),
+        Boolean.parseBoolean(System.getProperty("photosrenamer.corpus.thumbnails", "true")),
+        Boolean.parseBoolean(System.getProperty("photosrenamer.corpus.captions", "true")));
+  }
+
+  private final int width;
+  private final int days;
+  private final boolean withCaptions;
+  private final byte[][] images;
+  private final byte[][] thumbnails;
+
+  /**
+   * Creates a generator, and encodes the shared images.
+   *
+   * @param width Image width
+   * @param days Number of days over which photos were taken
+   * @param withThumbnails Whether to embed thumbnails
+   * @param withCaptions Whether to add IPTC captions
+   * @throws IOException On an exception encoding the images
+   */
+  SampleCorpus(
+      final int width, final int days, final boolean withThumbnails, final boolean withCaptions)
+      throws IOException {
+    this.width = width;
+    this.days = days;
+    this.withCaptions = withCaptions;
+
+    images = new byte[IMAGE_VARIANTS][];
+    thumbnails = new byte[IMAGE_VARIANTS][];
+    for (int i = 0; i < IMAGE_VARIANTS; i++) {
+      images[i] = SampleImages.jpeg(SampleImages.image(width, width * 3 / 4, i));
+      if (withThumbnails) {
+        thumbnails[i] = SampleImages.jpeg(SampleImages.image(160, 120, i));
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "%d px wide photos, taken over %d days, %s thumbnails, %s captions"
+        .formatted(
+            width, days, thumbnails[0] == null ? "without" : "with", withCaptions ? "with" : "without");
+  }
+
+  /**
+   * Writes photos to a directory, on several threads.
+   *
+   * @param directory Directory, which is created if needed
+   * @param fileCount Number of photos
+   * @throws IOException On an exception writing the photos
+   */
+  void write(final Path directory, final int fileCount) throws IOException {
+    Files.createDirectories(directory);
+    try {
+      IntStream.rangeClosed(1, fileCount)
+          .parallel()
+          .forEach(
+              number -> {
+                try {
+                  writePhoto(directory, number);
+                } catch (final IOException e) {
+                  throw new UncheckedIOException(e);
+                }
+              });
+    } catch (final UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  private void writePhoto(final Path directory, final int number) throws IOException {
+    // Each photo has its own random numbers, so the corpus does not depend on thread timing
+    final Random random = new Random(number);
+    final LocalDateTime taken = FIRST_DAY.plusSeconds(random.nextInt(days * 24 * 60 * 60));
+    final int variant = number % IMAGE_VARIANTS;
+
+    SampleImages.writeJpeg(
+        directory.resolve("IMG_%06d.jpg".formatted(number)),
+        images[variant],
+        taken,
+        thumbnails[variant],
+        withCaptions ? "Photo " + number : null);
+  }
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2004-2026, Sualeh Fatehi <sualeh@hotmail.com>
+ * This work is licensed under the Creative Commons Attribution-Noncommercial-No Derivative Works 3.0 License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/3.0/
+ * or send a letter to Creative Commons, 543 Howard Street, 5th Floor, San Francisco, California, 94105, USA.
+ */
+package photosrenamer.photosrenamer;
+
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.stream.Stream;
+import javax.imageio.ImageIO;
+
+/**
+ * Creates sample photos for benchmarks, so that no image files need to be checked in. Each photo
+ * is a JPEG file with a camera-like header: an EXIF segment with dates and an embedded thumbnail,
+ * an XMP segment, an ICC profile segment, and an IPTC caption in Photoshop resources. Other
+ * formats are written without metadata.
+ *
+ * @author Sualeh Fatehi
+ */
+final class SampleImages {
+
+  private static final DateTimeFormatter EXIF_DATE_FORMAT =
+      DateTimeFormatter.ofPattern("yyyy:MM:dd HH:mm:ss");
+
+  private static final int ICC_PROFILE_SIZE = 60_000;
+
+  /** Memory-backed file system on Linux, so that file system benchmarks do not measure the disk. */
+  private static final Path TMPFS = Path.of("/dev/shm");
+
+  /**
+   * Creates a temporary directory for sample files, on a memory-backed file system if there is one.
+   *
+   * @return New directory
+   * @throws IOException On an exception creating the directory
+   */
+  static Path createDirectory() throws IOException {
+    if (Files.isDirectory(TMPFS) && Files.isWritable(TMPFS)) {
+      return Files.createTempDirectory(TMPFS, "photosrenamer-benchmark");
+    }
+    return Files.createTempDirectory("photosrenamer-benchmark");
+  }
+
+  /**
+   * Deletes a directory of sample files.
+   *
+   * @param directory Directory to delete
+   * @throws IOException On an exception deleting files
+   */
+  static void deleteDirectory(final Path directory) throws IOException {
+    try (Stream<Path> paths = Files.walk(directory)) {
+      for (final Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+        Files.delete(path);
+      }
+    }
+  }
+
+  /**
+   * Creates an image with a gradient and a circle, which compresses like a simple photo.
+   *
+   * @param width Image width
+   * @param height Image height
+   * @param seed Varies the colors
+   * @return Image
+   */
+  static BufferedImage image(final int width, final int height, final int seed) {
+    final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    final Graphics2D g2d = image.createGraphics();
+    g2d.setPaint(
+        new GradientPaint(0, 0, new Color(seed * 37 % 256, 80, 160), width, height, Color.YELLOW));
+    g2d.fillRect(0, 0, width, height);
+    g2d.setColor(Color.RED);
+    g2d.fillOval(width / 4, height / 4, width / 2, height / 2);
+    g2d.dispose();
+    return image;
+  }
+
+  /**
+   * Writes a sample photo.
+   *
+   * @param file File to write
+   * @param width Image width
+   * @param taken Date and time the photo was taken
+   * @param seed Varies the colors
+   * @throws IOException On an exception writing the file
+   */
+  static void writeJpeg(
+      final Path file, final int width, final LocalDateTime taken, final int seed)
+      throws IOException {
+    final byte[] imageData = jpeg(image(width, width * 3 / 4, seed));
+    final byte[] thumbnailData = jpeg(image(160, 120, seed));
+    final String date = EXIF_DATE_FORMAT.format(taken);
+
+    try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+      // Start of image, then the metadata segments, then the rest of the image
+      out.write(imageData, 0, 2);
+      writeSegment(out, 0xE1, exif(date, thumbnailData));
+      writeSegment(out, 0xE1, xmp());
+      writeSegment(out, 0xE2, iccProfile());
+      writeSegment(out, 0xED, iptc("Photo " + seed));
+      out.write(imageData, 2, imageData.length - 2);
+    }
+  }
+
+  /**
+   * Writes a sample photo from an encoded image, with only an EXIF segment and, optionally, an IPTC
+   * caption, so that many photos can be written quickly from a few encoded images.
+   *
+   * @param file File to write
+   * @param imageData Encoded JPEG image
+   * @param taken Date and time the photo was taken
+   * @param thumbnailData Encoded JPEG thumbnail to embed, or null for none
+   * @param caption IPTC caption, or null for none
+   * @throws IOException On an exception writing the file
+   */
+  static void writeJpeg(
+      final Path file,
+      final byte[] imageData,
+      final LocalDateTime taken,
+      final byte[] thumbnailData,
+      final String caption)
+      throws IOException {
+    final String date = EXIF_DATE_FORMAT.format(taken);
+
+    try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+      out.write(imageData, 0, 2);
+      writeSegment(out, 0xE1, exif(date, thumbnailData));
+      if (caption != null) {
+        writeSegment(out, 0xED, iptc(caption));
+      }
+      out.write(imageData, 2, imageData.length - 2);
+    }
+  }
+
+  /**
+   * Encodes an image as JPEG.
+   *
+   * @param image Image to encode
+   * @return Encoded image
+   * @throws IOException On an exception encoding the image
+   */
+  static byte[] jpeg(final BufferedImage image) throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ImageIO.write(image, "jpg", out);
+    return out.toByteArray();
+  }
+
+  /**
+   * Writes a sample image in a format other than JPEG, such as PNG or TIFF.
+   *
+   * @param file File to write
+   * @param formatName Image I/O format name
+   * @param width Image width
+   * @param seed Varies the colors
+   * @throws IOException On an exception writing the file
+   */
+  static void writeImage(
+      final Path file, final String formatName, final int width, final int seed)
+      throws IOException {
+    try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+      if (!ImageIO.write(image(width, width * 3 / 4, seed), formatName, out)) {
+        throw new IOException("No image writer for " + formatName);
+      }
+    }
+  }
+
+  private static byte[] exif(final String date, final byte[] thumbnail) {
+    final byte[] dateBytes = (date + "\0").getBytes(StandardCharsets.US_ASCII);
+
+    // Offsets are relative to the start of the TIFF header
+    final int ifd0 = 8;
+    final int ifd0Date = ifd0 + 2 + 2 * 12 + 4;
+    final int subIfd = ifd0Date + dateBytes.length;
+    final int subIfdDate = subIfd + 2 + 12 + 4;
+    final int ifd1 = subIfdDate + dateBytes.length;
+    final int thumbnailOffset = ifd1 + 2 + 3 * 12 + 4;
+
+    final int length = thumbnail == null ? ifd1 : thumbnailOffset + thumbnail.length;
+    final ByteBuffer buffer = ByteBuffer.allocate(6 + length);
+    buffer.put("Exif\0\0".getBytes(StandardCharsets.US_ASCII));
+    buffer.put((byte) 'M').put((byte) 'M').putShort((short) 42).putInt(ifd0);
+
+    // IFD0: date and time, and pointer to the EXIF sub-IFD
+    buffer.putShort((short) 2);
+    buffer.putShort((short) 0x0132).putShort((short) 2).putInt(dateBytes.length).putInt(ifd0Date);
+    buffer.putShort((short) 0x8769).putShort((short) 4).putInt(1).putInt(subIfd);
+    buffer.putInt(thumbnail == null ? 0 : ifd1);
+    buffer.put(dateBytes);
+
+    // EXIF sub-IFD: date and time original
+    buffer.putShort((short) 1);
+    buffer
+        .putShort((short) 0x9003)
+        .putShort((short) 2)
+        .putInt(dateBytes.length)
+        .putInt(subIfdDate);
+    buffer.putInt(0);
+    buffer.put(dateBytes);
+    if (thumbnail == null) {
+      return buffer.array();
+    }
+
+    // IFD1: JPEG thumbnail
+    buffer.putShort((short) 3);
+    buffer.putShort((short) 0x0103).putShort((short) 3).putInt(1).putShort((short) 6);
+    buffer.putShort((short) 0);
+    buffer.putShort((short) 0x0201).putShort((short) 4).putInt(1).putInt(thumbnailOffset);
+    buffer.putShort((short) 0x0202).putShort((short) 4).putInt(1).putInt(thumbnail.length);
+    buffer.putInt(0);
+    buffer.put(thumbnail);
+
+    return buffer.array();
+  }
+
+  private static byte[] iccProfile() {
+    final byte[] preamble = "ICC_PROFILE\0".getBytes(StandardCharsets.US_ASCII);
+    final ByteBuffer buffer = ByteBuffer.allocate(preamble.length + 2 + ICC_PROFILE_SIZE);
+    buffer.put(preamble).put((byte) 1).put((byte) 1);
+    // Profile contents are not parsed by the selective reader, so filler is enough
+    return buffer.array();
+  }
+
+  private static byte[] iptc(final String caption) {
+    final byte[] captionBytes = caption.getBytes(StandardCharsets.UTF_8);
+    final int iptcLength = 5 + captionBytes.length;
+    final int paddedLength = iptcLength + iptcLength % 2;
+
+    final ByteBuffer buffer = ByteBuffer.allocate(14 + 12 + paddedLength);
+    buffer.put("Photoshop 3.0\0".getBytes(StandardCharsets.US_ASCII));
+    buffer.put("8BIM".getBytes(StandardCharsets.US_ASCII));
+    buffer.putShort((short) 0x0404).putShort((short) 0).putInt(iptcLength);
+    buffer.put((byte) 0x1C).put((byte) 2).put((byte) 120);
+    buffer.putShort((short) captionBytes.length).put(captionBytes);
+    return buffer.array();
+  }
+
+  private static void writeSegment(final OutputStream out, final int marker, final byte[] data)
+      throws IOException {
+    final int length = data.length + 2;
+    out.write(0xFF);
+    out.write(marker);
+    out.write(length >> 8);
+    out.write(length & 0xFF);
+    out.write(data);
+  }
+
+  private static byte[] xmp() {
+    final String xmp =
+        """
+        http://ns.adobe.com/xap/1.0/\0<?xpacket begin="" id="W5M0MpCehiHzreSzNTczkc9d"?>
+        <x:xmpmeta xmlns:x="adobe:ns:meta/">
+         <rdf:RDF xmlns:rdf="http://www.w3.org/1999/02/22-rdf-syntax-ns#">
+          <rdf:Description rdf:about="" xmlns:xmp="http://ns.adobe.com/xap/1.0/">
+           <xmp:CreatorTool>Photos Renamer</xmp:CreatorTool>
+          </rdf:Description>
+         </rdf:RDF>
+        </x:xmpmeta>
+        <?xpacket end="w"?>""";
+    return xmp.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private SampleImages() {}
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2004-2026, Sualeh Fatehi <sualeh@hotmail.com>
+ * This work is licensed under the Creative Commons Attribution-Noncommercial-No Derivative Works 3.0 License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/3.0/
+ * or send a letter to Creative Commons, 543 Howard Street, 5th Floor, San Francisco, California, 94105, USA.
+ */
+package photosrenamer.photosrenamer;
+
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.Toolkit;
+import java.awt.image.BufferedImage;
+import java.awt.image.CropImageFilter;
+import java.awt.image.FilteredImageSource;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the cost of scaling an image to a thumbnail with the previous area averaging pipeline,
+ * and with progressive bilinear scaling. The previous pipeline is reproduced here, including drawing
+ * the lazily produced toolkit image once, as happens when it is first painted.
+ *
+ * @author Sualeh Fatehi
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ThumbnailScalingBenchmark {
+
+  private static final int IMAGE_WIDTH = 180;
+  private static final int IMAGE_HEIGHT = 120;
+
+  /** Width of the source image: embedded preview, subsampled decode, and full decode. */
+  @Param({"160", "720", "6000"})
+  public int sourceWidth;
+
+  private BufferedImage image;
+
+  @Benchmark
+  public BufferedImage areaAveraging() {
+    final Image scaledImage =
+        image.getScaledInstance(IMAGE_WIDTH, -1, Image.SCALE_AREA_AVERAGING);
+
+    final BufferedImage bufferedImage =
+        new BufferedImage(IMAGE_WIDTH, IMAGE_HEIGHT, BufferedImage.TYPE_INT_RGB);
+    Graphics2D g2d = bufferedImage.createGraphics();
+    g2d.setColor(Color.WHITE);
+    g2d.fillRect(0, 0, IMAGE_WIDTH, IMAGE_HEIGHT);
+    g2d.drawImage(scaledImage, null, null);
+    g2d.dispose();
+    scaledImage.flush();
+
+    final CropImageFilter filter = new CropImageFilter(0, 0, IMAGE_WIDTH, IMAGE_HEIGHT);
+    final Image thumbnail =
+        Toolkit.getDefaultToolkit()
+            .createImage(new FilteredImageSource(bufferedImage.getSource(), filter));
+
+    // Produce the toolkit image, as painting it would
+    final BufferedImage painted =
+        new BufferedImage(IMAGE_WIDTH, IMAGE_HEIGHT, BufferedImage.TYPE_INT_RGB);
+    g2d = painted.createGraphics();
+    g2d.drawImage(thumbnail, 0, 0, null);
+    g2d.dispose();
+    thumbnail.flush();
+    return painted;
+  }
+
+  @Benchmark
+  public BufferedImage progressiveBilinear() {
+    return ThumbnailImages.scale(image, IMAGE_WIDTH, IMAGE_HEIGHT);
+  }
+
+  @Setup
+  public void setUp() {
+    final int sourceHeight = sourceWidth * 3 / 4;
+    image = new BufferedImage(sourceWidth, sourceHeight, BufferedImage.TYPE_INT_RGB);
+    final Graphics2D g2d = image.createGraphics();
+    g2d.setPaint(new GradientPaint(0, 0, Color.BLUE, sourceWidth, sourceHeight, Color.YELLOW));
+    g2d.fillRect(0, 0, sourceWidth, sourceHeight);
+    g2d.setColor(Color.RED);
+    g2d.fillOval(sourceWidth / 4, sourceHeight / 4, sourceWidth / 2, sourceHeight / 2);
+    g2d.dispose();
+  }
+}
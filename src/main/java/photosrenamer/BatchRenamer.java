@@ -0,0 +1,286 @@
+/*
+ * Copyright (c) 2004-2026, Sualeh Fatehi <sualeh@hotmail.com>
+ * This work is licensed under the Creative Commons Attribution-Noncommercial-No Derivative Works 3.0 License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/3.0/
+ * or send a letter to Creative Commons, 543 Howard Street, 5th Floor, San Francisco, California, 94105, USA.
+ */
+package photosrenamer;
+
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import photosrenamer.photosrenamer.FileComparator;
+import photosrenamer.photosrenamer.FileIdentity;
+import photosrenamer.photosrenamer.FileItem;
+import photosrenamer.photosrenamer.FileSorter;
+import photosrenamer.photosrenamer.FilesRenamer;
+import photosrenamer.photosrenamer.ImageFiles;
+import photosrenamer.photosrenamer.MetadataCache;
+import photosrenamer.photosrenamer.MetadataPrefetcher;
+import photosrenamer.photosrenamer.RenameJournal;
+
+/**
+ * Sorts and renames the photos in one or more directories from the command line, without a user
+ * interface. Thumbnails are not created, and AWT is not initialized.
+ *
+ * @author Sualeh Fatehi
+ */
+public final class BatchRenamer {
+
+  /** Whether to rename photos, or to finish or undo an unfinished rename. */
+  private enum Mode {
+    RENAME,
+    RESUME,
+    ROLLBACK,
+  }
+
+  private static final Logger logger = Logger.getGlobal();
+
+  private static final String USAGE =
+      """
+      Usage: photosrenamer --stem <filestem> [--sort date|name] [--recursive] <directory>...
+             photosrenamer --resume|--rollback <directory>...
+        --stem        Alphanumeric stem for the new file names, such as "vacation"
+        --sort        Sort photos by date taken (default), or by file name
+        --recursive   Include photos in subdirectories, numbered in one sequence,
+                      but each left in its own directory
+        --resume      Finish an unfinished rename, from its rename journal
+        --rollback    Undo an unfinished rename, from its rename journal
+      """;
+
+  /**
+   * Sorts and renames photos in the directories given on the command line.
+   *
+   * @param args Command line arguments.
+   */
+  public static void main(final String[] args) {
+    System.setProperty("java.awt.headless", "true");
+
+    final BatchRenamer batchRenamer;
+    try {
+      batchRenamer = parse(args);
+    } catch (final IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.err.print(USAGE);
+      System.exit(2);
+      return;
+    }
+
+    final boolean success = batchRenamer.run(System.out);
+    System.exit(success ? 0 : 1);
+  }
+
+  /**
+   * Parses command line arguments.
+   *
+   * @param args Command line arguments
+   * @return Batch renamer
+   */
+  static BatchRenamer parse(final String[] args) {
+    String fileStem = null;
+    FileComparator comparator = FileComparator.BY_DATE;
+    boolean recursive = false;
+    Mode mode = Mode.RENAME;
+    final List<Path> directories = new ArrayList<>();
+
+    for (int i = 0; i < args.length; i++) {
+      final String arg = args[i];
+      switch (arg) {
+        case "--stem":
+          fileStem = argumentValue(args, ++i, arg);
+          break;
+        case "--sort":
+          comparator = parseComparator(argumentValue(args, ++i, arg));
+          break;
+        case "--recursive":
+          recursive = true;
+          break;
+        case "--resume":
+        case "--rollback":
+          if (mode != Mode.RENAME) {
+            throw new IllegalArgumentException("Only one of --resume and --rollback can be used");
+          }
+          mode = arg.equals("--resume") ? Mode.RESUME : Mode.ROLLBACK;
+          break;
+        default:
+          if (arg.startsWith("--")) {
+            throw new IllegalArgumentException("Unknown option " + arg);
+          }
+          final Path directory = Path.of(arg);
+          if (!Files.isDirectory(directory)) {
+            throw new IllegalArgumentException("Not a directory: " + arg);
+          }
+          directories.add(directory);
+      }
+    }
+
+    if (fileStem == null && mode == Mode.RENAME) {
+      throw new IllegalArgumentException("No file stem provided");
+    }
+    if (directories.isEmpty()) {
+      throw new IllegalArgumentException("No directories provided");
+    }
+    return new BatchRenamer(directories, mode, recursive, comparator, fileStem);
+  }
+
+  private static String argumentValue(final String[] args, final int index, final String option) {
+    if (index >= args.length) {
+      throw new IllegalArgumentException("No value provided for " + option);
+    }
+    return args[index];
+  }
+
+  private static long millisSince(final long startNanos) {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+  }
+
+  private static FileComparator parseComparator(final String value) {
+    switch (value.toLowerCase(Locale.ENGLISH)) {
+      case "date":
+      case "by_date":
+        return FileComparator.BY_DATE;
+      case "name":
+      case "by_name":
+        return FileComparator.BY_NAME;
+      default:
+        throw new IllegalArgumentException("Unknown sort order " + value);
+    }
+  }
+
+  private final List<Path> directories;
+  private final Mode mode;
+  private final boolean recursive;
+  private final FileComparator comparator;
+  private final String fileStem;
+  private final MetadataPrefetcher metadataPrefetcher;
+
+  BatchRenamer(
+      final List<Path> directories,
+      final Mode mode,
+      final boolean recursive,
+      final FileComparator comparator,
+      final String fileStem) {
+    this.directories = List.copyOf(directories);
+    this.mode = mode;
+    this.recursive = recursive;
+    this.comparator = comparator;
+    this.fileStem = fileStem;
+    metadataPrefetcher = new MetadataPrefetcher();
+  }
+
+  /**
+   * Sorts and renames photos in each directory, and prints timings.
+   *
+   * @param out Stream for the report
+   * @return True if all directories were renamed
+   */
+  boolean run(final PrintStream out) {
+    boolean success = true;
+    int totalFiles = 0;
+    final long startNanos = System.nanoTime();
+
+    for (final Path directory : directories) {
+      try {
+        if (mode == Mode.RENAME) {
+          totalFiles = totalFiles + rename(directory, out);
+        } else {
+          recover(directory, out);
+        }
+      } catch (final Exception e) {
+        logger.log(Level.SEVERE, "Could not rename photos in " + directory, e);
+        success = false;
+      }
+    }
+
+    metadataPrefetcher.shutdown();
+    if (mode != Mode.RENAME) {
+      return success;
+    }
+
+    final long totalMillis = millisSince(startNanos);
+    out.printf(
+        "Renamed %d files in %d directories in %d ms (%.1f files/s)%n",
+        totalFiles, directories.size(), totalMillis, throughput(totalFiles, totalMillis));
+    return success;
+  }
+
+  private void recover(final Path directory, final PrintStream out) throws Exception {
+    if (!RenameJournal.exists(directory)) {
+      out.printf("%s: no unfinished rename%n", directory);
+      return;
+    }
+
+    final long startNanos = System.nanoTime();
+    final RenameJournal journal = RenameJournal.open(directory);
+    if (mode == Mode.RESUME) {
+      journal.resume(FilesRenamer.defaultParallelism());
+    } else {
+      journal.rollback(FilesRenamer.defaultParallelism());
+    }
+    out.printf(
+        "%s: %s rename in %d ms%n",
+        directory, mode == Mode.RESUME ? "resumed" : "rolled back", millisSince(startNanos));
+  }
+
+  private int rename(final Path directory, final PrintStream out) throws Exception {
+    final MetadataCache metadataCache = MetadataCache.forDirectory(directory);
+
+    long startNanos = System.nanoTime();
+    final List<FileItem> fileItems = ImageFiles.list(directory, recursive, metadataCache);
+    if (comparator == FileComparator.BY_DATE) {
+      metadataPrefetcher.prefetch(fileItems, null).join();
+    }
+    final long loadMillis = millisSince(startNanos);
+
+    startNanos = System.nanoTime();
+    if (comparator == FileComparator.BY_DATE) {
+      // Files with the same date are numbered in name order
+      FileSorter.sort(fileItems, FileComparator.BY_DATE, FileComparator.BY_NAME);
+    } else {
+      FileSorter.sort(fileItems, comparator);
+    }
+    final long sortMillis = millisSince(startNanos);
+
+    startNanos = System.nanoTime();
+    Map<Path, Path> renames = Map.of();
+    if (!fileItems.isEmpty()) {
+      final List<Path> files = new ArrayList<>(fileItems.size());
+      for (final FileItem fileItem : fileItems) {
+        files.add(fileItem.getFile());
+      }
+      renames = new FilesRenamer(directory, files, fileStem).rename();
+    }
+    final long renameMillis = millisSince(startNanos);
+
+    // Identities can be keyed by path, so cached metadata is kept under the new names
+    final List<FileIdentity> identities = new ArrayList<>(fileItems.size());
+    for (final FileItem fileItem : fileItems) {
+      final Path renamedFile = renames.get(fileItem.getFile());
+      if (renamedFile == null) {
+        identities.add(fileItem.getIdentity());
+      } else {
+        identities.add(fileItem.renamedTo(renamedFile).getIdentity());
+      }
+    }
+    metadataCache.retainAll(identities);
+    metadataCache.save();
+
+    final int size = fileItems.size();
+    final long totalMillis = loadMillis + sortMillis + renameMillis;
+    out.printf(
+        "%s: %d files; load %d ms, sort %d ms, rename %d ms (%.1f files/s)%n",
+        directory, size, loadMillis, sortMillis, renameMillis, throughput(size, totalMillis));
+    return size;
+  }
+
+  private double throughput(final int files, final long millis) {
+    return files * 1000D / Math.max(1, millis);
+  }
+}
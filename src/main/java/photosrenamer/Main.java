@@ -14,7 +14,8 @@ import javax.swing.UIManager;
 import photosrenamer.gui.PhotosRenamerWindow;
 
 /**
- * Shows the Files Renamer window.
+ * Shows the Files Renamer window, or renames photos from the command line if arguments are
+ * provided.
  *
  * @author Sualeh Fatehi
  */
@@ -23,11 +24,17 @@ public class Main {
   private static final Logger logger = Logger.getGlobal();
 
   /**
-   * Shows the Files Renamer window.
+   * Shows the Files Renamer window, or renames photos from the command line if arguments are
+   * provided.
    *
    * @param args Command line arguments.
    */
   public static void main(final String[] args) {
+    if (args.length > 0) {
+      BatchRenamer.main(args);
+      return;
+    }
+
     try {
       logger.setLevel(Level.ALL);
 
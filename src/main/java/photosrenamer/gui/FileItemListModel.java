@@ -8,19 +8,38 @@ package photosrenamer.gui;
 
 import java.io.IOException;
 import java.io.Serial;
-import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.LogRecord;
 import java.util.logging.Logger;
 import javax.swing.AbstractListModel;
+import javax.swing.SwingUtilities;
+import photosrenamer.photosrenamer.DirectoryWatcher;
 import photosrenamer.photosrenamer.FileComparator;
+import photosrenamer.photosrenamer.FileIdentity;
 import photosrenamer.photosrenamer.FileItem;
+import photosrenamer.photosrenamer.FileSorter;
+import photosrenamer.photosrenamer.ImageFiles;
+import photosrenamer.photosrenamer.MetadataCache;
+import photosrenamer.photosrenamer.MetadataPrefetcher;
+import photosrenamer.photosrenamer.MetadataPrefetcher.ProgressListener;
 
 public class FileItemListModel extends AbstractListModel<FileItem> {
 
@@ -28,12 +47,43 @@ public class FileItemListModel extends AbstractListModel<FileItem> {
 
   private static final Logger logger = Logger.getGlobal();
 
+  private static final int PROGRESS_INTERVAL = 50;
+  private static final int BATCH_SIZE = 500;
+  private static final long BATCH_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
   private final List<FileItem> fileItems;
+  private final transient Map<Path, Integer> indexes;
+
+  private final transient MetadataPrefetcher metadataPrefetcher;
+  private final transient ExecutorService directoryLoader;
 
   private Path workingDir;
+  private boolean recursive;
+  private transient Comparator<FileItem> comparator;
+  private volatile int loadGeneration;
+  private volatile int renameCount;
+  private boolean loading;
+  private transient MetadataCache metadataCache;
+  private transient CompletableFuture<Void> prefetch;
+  private int prefetchGeneration;
+  private transient Comparator<FileItem> sortAfterPrefetch;
+  private transient ProgressListener progressListener;
+  private boolean inSortOrder;
+  private transient volatile DirectoryWatcher directoryWatcher;
+  private volatile boolean watchingStopped;
 
   public FileItemListModel() {
     fileItems = new ArrayList<>();
+    indexes = new HashMap<>();
+    metadataPrefetcher = new MetadataPrefetcher();
+    directoryLoader =
+        Executors.newSingleThreadExecutor(
+            runnable -> {
+              final Thread thread = new Thread(runnable, "photosrenamer-directory-loader");
+              thread.setDaemon(true);
+              return thread;
+            });
+    comparator = FileComparator.BY_NAME;
   }
 
   @Override
@@ -54,24 +104,169 @@ public class FileItemListModel extends AbstractListModel<FileItem> {
     return fileItems.size();
   }
 
+  /**
+   * Index of the file item for a file, without searching the list.
+   *
+   * @param file File
+   * @return Index of the file item, or -1 if the file is not in the list
+   */
+  public int indexOf(final Path file) {
+    final Integer index = indexes.get(file);
+    return index == null ? -1 : index;
+  }
+
+  /**
+   * Whether the directory is still being listed in the background.
+   *
+   * @return True while the directory is being listed
+   */
+  public boolean isLoading() {
+    return loading;
+  }
+
+  /**
+   * Lists the working directory in the background. File items are added to the list in batches as
+   * they are found, and are sorted when the whole directory has been listed. The directory is then
+   * watched, and files that are created, deleted or modified by any process are updated in the list
+   * as they change.
+   */
   public void load() {
-    if (workingDir == null && !Files.isDirectory(workingDir)) {
+    if (workingDir == null || !Files.isDirectory(workingDir)) {
       return;
     }
 
-    fileItems.clear();
+    cancelPrefetch();
+    loadGeneration = loadGeneration + 1;
+    final int generation = loadGeneration;
+    loading = true;
+    watchingStopped = false;
+
+    // Save the metadata cache for the file items that are being replaced
+    final MetadataCache previousMetadataCache = metadataCache;
+    final List<FileIdentity> previousIdentities = getIdentities();
+
+    clear();
+
+    final Path directory = workingDir;
+    final boolean includeSubdirectories = recursive;
+    directoryLoader.execute(
+        () ->
+            loadDirectory(
+                generation,
+                directory,
+                includeSubdirectories,
+                previousMetadataCache,
+                previousIdentities));
+  }
+
+  /**
+   * Whether dates and other metadata are still being loaded in the background.
+   *
+   * @return True while metadata is being loaded
+   */
+  public boolean isPrefetching() {
+    return prefetch != null && !prefetch.isDone();
+  }
 
-    try (DirectoryStream<Path> dirStream =
-        Files.newDirectoryStream(workingDir, "*.{jpeg,jpg,gif,tiff,tif,png}")) {
-      for (final Path file : dirStream) {
-        fileItems.add(new FileItem(file));
+  /**
+   * Points file items at the new names of files that have been renamed, in one pass, keeping the
+   * metadata and thumbnails that have already been loaded. The order of the list is kept. If
+   * watching was stopped for the rename, the directory is watched again, and listed again in the
+   * background, to find files that other processes changed in the meantime.
+   *
+   * @param renames Map of old names to new names
+   */
+  public void renamed(final Map<Path, Path> renames) {
+    followRenames(renames);
+    if (watchingStopped) {
+      watchingStopped = false;
+      resumeWatching();
+    }
+  }
+
+  /**
+   * Stops watching the directory before files are renamed, so that the moves are not reported back
+   * as changes, since a large rename moves more files than the directory watcher can follow.
+   * Watching starts again when renamed() is called, or when the directory is listed again. The
+   * watcher is closed without waiting for the directory loader, and changes that it has already
+   * reported are dropped, since the directory is listed again after the rename.
+   */
+  public void renaming() {
+    if (workingDir == null || watchingStopped) {
+      return;
+    }
+    watchingStopped = true;
+    // A watcher that is started on the directory loader thread after this sees the flag, and
+    // closes itself
+    final DirectoryWatcher watcher = directoryWatcher;
+    if (watcher != null) {
+      watcher.close();
+    }
+  }
+
+  private void followRenames(final Map<Path, Path> renames) {
+    if (renames.isEmpty()) {
+      return;
+    }
+    // Changes seen by the directory watcher during the rename are checked again
+    renameCount = renameCount + 1;
+
+    int first = -1;
+    int last = -1;
+    final List<Integer> renamedIndexes = new ArrayList<>(renames.size());
+    for (int i = 0; i < fileItems.size(); i++) {
+      final Path file = fileItems.get(i).getFile();
+      if (renames.containsKey(file)) {
+        // Names can be swapped, so remove all the old names before adding the new names
+        indexes.remove(file);
+        renamedIndexes.add(i);
+      }
+    }
+    for (final int index : renamedIndexes) {
+      final FileItem fileItem = fileItems.get(index);
+      final Path renamedFile = renames.get(fileItem.getFile());
+      fileItems.set(index, fileItem.renamedTo(renamedFile));
+      indexes.put(renamedFile, index);
+      if (first < 0) {
+        first = index;
       }
+      last = index;
+    }
+    if (first < 0) {
+      return;
+    }
 
-    } catch (final IOException e) {
-      logger.log(new LogRecord(Level.CONFIG, e.getMessage()));
+    if (isPrefetching()) {
+      // Load metadata into the renamed file items instead
+      final Comparator<FileItem> sortComparator = sortAfterPrefetch;
+      cancelPrefetch();
+      startPrefetch();
+      sortAfterPrefetch = sortComparator;
     }
+    fireContentsChanged(this, first, last);
+  }
+
+  /**
+   * Sets the listener for progress of loading metadata in the background. The listener is called
+   * on the event dispatch thread.
+   *
+   * @param progressListener Progress listener, or null
+   */
+  public void setProgressListener(final ProgressListener progressListener) {
+    this.progressListener = progressListener;
+  }
 
-    sort(FileComparator.BY_NAME);
+  /**
+   * Sets whether subdirectories of the working directory are listed too, and lists the working
+   * directory again if the setting has changed.
+   *
+   * @param recursive Whether to include subdirectories
+   */
+  public void setRecursive(final boolean recursive) {
+    if (this.recursive != recursive) {
+      this.recursive = recursive;
+      load();
+    }
   }
 
   public void setWorkingDirectory(final Path workingDirectory) {
@@ -79,8 +274,428 @@ public class FileItemListModel extends AbstractListModel<FileItem> {
       workingDir = workingDirectory;
       load();
     } else {
+      cancelPrefetch();
+      loadGeneration = loadGeneration + 1;
+      loading = false;
+      saveMetadataCache();
+      metadataCache = null;
       workingDir = null;
-      fileItems.clear();
+      directoryLoader.execute(this::stopWatching);
+
+      clear();
+    }
+  }
+
+  private void addFileItems(final int generation, final List<FileItem> batch) {
+    if (generation != loadGeneration || batch.isEmpty()) {
+      return;
+    }
+    final int start = fileItems.size();
+    for (final FileItem fileItem : batch) {
+      // Skip files that have already been added because they changed while being listed
+      if (!indexes.containsKey(fileItem.getFile())) {
+        indexes.put(fileItem.getFile(), fileItems.size());
+        fileItems.add(fileItem);
+      }
+    }
+    if (fileItems.size() > start) {
+      fireIntervalAdded(this, start, fileItems.size() - 1);
+    }
+  }
+
+  /**
+   * Updates the list for files that have changed, on the event dispatch thread. Deleted files are
+   * removed, new files are added, in name order if the list is sorted by name, and otherwise at the
+   * end, and modified files are replaced with new file items, so that their metadata and thumbnails
+   * are loaded again.
+   */
+  private void applyChanges(
+      final int generation,
+      final int seenRenameCount,
+      final MetadataCache directoryMetadataCache,
+      final Set<Path> paths,
+      final List<FileItem> changedItems,
+      final List<Path> deletedFiles) {
+    if (generation != loadGeneration || watchingStopped) {
+      // Changes made while watching was stopped are found when the directory is listed again
+      return;
+    }
+    if (seenRenameCount != renameCount) {
+      // Files were renamed while the changes were read, so read them again
+      directoryLoader.execute(() -> directoryChanged(generation, directoryMetadataCache, paths));
+      return;
+    }
+    update(changedItems, deletedFiles);
+  }
+
+  /**
+   * Updates the list from a new listing of the directory, on the event dispatch thread. File items
+   * that are no longer listed are removed, and listed files that are new or modified are updated,
+   * so file items that have not changed keep their metadata and thumbnails, and their place in the
+   * list.
+   */
+  private void applyListing(
+      final int generation,
+      final int seenRenameCount,
+      final Path directory,
+      final boolean includeSubdirectories,
+      final MetadataCache directoryMetadataCache,
+      final List<FileItem> listedItems) {
+    if (generation != loadGeneration || watchingStopped) {
+      // The directory is listed again when watching starts again
+      return;
+    }
+    if (seenRenameCount != renameCount) {
+      // Files were renamed while the directory was listed, so list it again
+      directoryLoader.execute(
+          () -> relist(generation, directory, includeSubdirectories, directoryMetadataCache));
+      return;
+    }
+
+    final Set<Path> listedFiles = new HashSet<>();
+    for (final FileItem fileItem : listedItems) {
+      listedFiles.add(fileItem.getFile());
+    }
+    final List<Path> deletedFiles = new ArrayList<>();
+    for (final FileItem fileItem : fileItems) {
+      if (!listedFiles.contains(fileItem.getFile())) {
+        deletedFiles.add(fileItem.getFile());
+      }
+    }
+    update(listedItems, deletedFiles);
+  }
+
+  /** Removes deleted files, and adds or replaces file items for new or modified files. */
+  private void update(final List<FileItem> changedItems, final List<Path> deletedFiles) {
+    final BitSet removed = new BitSet();
+    for (final Path deletedFile : deletedFiles) {
+      final Integer index = indexes.get(deletedFile);
+      if (index != null) {
+        removed.set(index);
+      } else if (recursive && !ImageFiles.isImageFile(deletedFile)) {
+        // Possibly a deleted subdirectory
+        for (int i = 0; i < fileItems.size(); i++) {
+          if (fileItems.get(i).getFile().startsWith(deletedFile)) {
+            removed.set(i);
+          }
+        }
+      }
+    }
+    remove(removed);
+
+    final List<FileItem> loadItems = new ArrayList<>();
+    for (final FileItem fileItem : changedItems) {
+      final Integer index = indexes.get(fileItem.getFile());
+      if (index == null) {
+        insert(fileItem);
+        loadItems.add(fileItem);
+      } else if (!Objects.equals(fileItems.get(index).getIdentity(), fileItem.getIdentity())) {
+        fileItems.set(index, fileItem);
+        fireContentsChanged(this, index, index);
+        loadItems.add(fileItem);
+      }
+    }
+    if (!loadItems.isEmpty()) {
+      metadataPrefetcher.prefetch(loadItems, null);
+    }
+  }
+
+  private void clear() {
+    final int size = fileItems.size();
+    fileItems.clear();
+    indexes.clear();
+    if (size > 0) {
+      fireIntervalRemoved(this, 0, size - 1);
+    }
+  }
+
+  /**
+   * Creates file items for changed files, on the directory loader thread, so that neither the event
+   * dispatch thread nor the directory watcher thread waits for the file system. Since the directory
+   * is listed on the same thread, changes are read only after every batch of the listing has been
+   * published, so a file that is deleted while it is being listed is found to be deleted, and is
+   * removed again.
+   */
+  private void directoryChanged(
+      final int generation, final MetadataCache directoryMetadataCache, final Set<Path> paths) {
+    final int seenRenameCount = renameCount;
+    final List<FileItem> changedItems = new ArrayList<>();
+    final List<Path> deletedFiles = new ArrayList<>();
+    for (final Path path : paths) {
+      if (!Files.exists(path, LinkOption.NOFOLLOW_LINKS)) {
+        deletedFiles.add(path);
+      } else if (ImageFiles.isImageFile(path) && Files.isRegularFile(path)) {
+        changedItems.add(new FileItem(path, directoryMetadataCache));
+      }
+    }
+    SwingUtilities.invokeLater(
+        () ->
+            applyChanges(
+                generation,
+                seenRenameCount,
+                directoryMetadataCache,
+                paths,
+                changedItems,
+                deletedFiles));
+  }
+
+  /**
+   * Lists the directory again after the directory watcher has lost changes, on the directory loader
+   * thread, so that the list can be brought up to date without being cleared.
+   */
+  private void relist(
+      final int generation,
+      final Path directory,
+      final boolean includeSubdirectories,
+      final MetadataCache directoryMetadataCache) {
+    if (generation != loadGeneration || watchingStopped) {
+      return;
+    }
+    final int seenRenameCount = renameCount;
+    final List<FileItem> listedItems;
+    try {
+      listedItems = ImageFiles.list(directory, includeSubdirectories, directoryMetadataCache);
+    } catch (final IOException e) {
+      logger.log(new LogRecord(Level.CONFIG, e.getMessage()));
+      return;
+    }
+    SwingUtilities.invokeLater(
+        () ->
+            applyListing(
+                generation,
+                seenRenameCount,
+                directory,
+                includeSubdirectories,
+                directoryMetadataCache,
+                listedItems));
+  }
+
+  private void insert(final FileItem fileItem) {
+    int index = fileItems.size();
+    if (!loading && inSortOrder && comparator == FileComparator.BY_NAME) {
+      index = Collections.binarySearch(fileItems, fileItem, comparator);
+      if (index < 0) {
+        index = -index - 1;
+      }
+    }
+    fileItems.add(index, fileItem);
+    reindex(index);
+    fireIntervalAdded(this, index, index);
+  }
+
+  private void reindex(final int start) {
+    for (int i = start; i < fileItems.size(); i++) {
+      indexes.put(fileItems.get(i).getFile(), i);
+    }
+  }
+
+  /** Removes file items, firing an event for each run of adjacent items. */
+  private void remove(final BitSet removed) {
+    if (removed.isEmpty()) {
+      return;
+    }
+    int last = removed.length() - 1;
+    while (last >= 0) {
+      final int first = removed.previousClearBit(last) + 1;
+      final List<FileItem> removedItems = fileItems.subList(first, last + 1);
+      for (final FileItem fileItem : removedItems) {
+        indexes.remove(fileItem.getFile());
+      }
+      removedItems.clear();
+      fireIntervalRemoved(this, first, last);
+      last = removed.previousSetBit(first - 1);
+    }
+    reindex(removed.nextSetBit(0));
+  }
+
+  private void cancelPrefetch() {
+    prefetchGeneration = prefetchGeneration + 1;
+    if (prefetch != null) {
+      prefetch.cancel(false);
+      prefetch = null;
+    }
+    sortAfterPrefetch = null;
+  }
+
+  private void prefetchDone(final int generation) {
+    if (generation != prefetchGeneration) {
+      // A different directory has been loaded since
+      return;
+    }
+    prefetch = null;
+
+    if (sortAfterPrefetch != null) {
+      final Comparator<FileItem> comparator = sortAfterPrefetch;
+      sortAfterPrefetch = null;
+      sort(comparator);
+    }
+  }
+
+  private void prefetchProgress(final int generation, final int loaded, final int total) {
+    if (progressListener != null && generation == prefetchGeneration) {
+      progressListener.progress(loaded, total);
+    }
+  }
+
+  private List<FileIdentity> getIdentities() {
+    final List<FileIdentity> identities = new ArrayList<>(fileItems.size());
+    for (final FileItem fileItem : fileItems) {
+      identities.add(fileItem.getIdentity());
+    }
+    return identities;
+  }
+
+  /** Lists a directory, on the directory loader thread. */
+  private void loadDirectory(
+      final int generation,
+      final Path directory,
+      final boolean includeSubdirectories,
+      final MetadataCache previousMetadataCache,
+      final List<FileIdentity> previousIdentities) {
+    if (previousMetadataCache != null) {
+      previousMetadataCache.retainAll(previousIdentities);
+      previousMetadataCache.save();
+    }
+
+    final MetadataCache directoryMetadataCache;
+    if (previousMetadataCache != null
+        && previousMetadataCache.getDirectory().equals(directory.toAbsolutePath().normalize())) {
+      directoryMetadataCache = previousMetadataCache;
+    } else {
+      directoryMetadataCache = MetadataCache.forDirectory(directory);
+    }
+
+    // Watch before listing, so that no change is missed
+    startWatching(generation, directory, includeSubdirectories, directoryMetadataCache);
+
+    // Subdirectories are walked in parallel, so file items can arrive on several threads
+    final List<FileItem> batch = new ArrayList<>();
+    final long[] lastPublished = {System.nanoTime()};
+    try {
+      ImageFiles.forEach(
+          directory,
+          includeSubdirectories,
+          directoryMetadataCache,
+          fileItem -> {
+            if (generation != loadGeneration) {
+              throw new CancellationException();
+            }
+            synchronized (batch) {
+              batch.add(fileItem);
+              final long now = System.nanoTime();
+              if (batch.size() >= BATCH_SIZE || now - lastPublished[0] >= BATCH_NANOS) {
+                final List<FileItem> published = List.copyOf(batch);
+                batch.clear();
+                lastPublished[0] = now;
+                SwingUtilities.invokeLater(() -> addFileItems(generation, published));
+              }
+            }
+          });
+    } catch (final CancellationException e) {
+      return;
+    } catch (final IOException e) {
+      logger.log(new LogRecord(Level.CONFIG, e.getMessage()));
+    }
+
+    final List<FileItem> published = List.copyOf(batch);
+    SwingUtilities.invokeLater(
+        () -> {
+          addFileItems(generation, published);
+          loadDone(generation, directoryMetadataCache);
+        });
+  }
+
+  private void loadDone(final int generation, final MetadataCache directoryMetadataCache) {
+    if (generation != loadGeneration) {
+      return;
+    }
+    loading = false;
+    metadataCache = directoryMetadataCache;
+
+    sort(comparator);
+
+    startPrefetch();
+  }
+
+  private void saveMetadataCache() {
+    if (metadataCache == null) {
+      return;
+    }
+    metadataCache.retainAll(getIdentities());
+    metadataCache.save();
+  }
+
+  /** Starts watching a directory, on the directory loader thread. */
+  private void startWatching(
+      final int generation,
+      final Path directory,
+      final boolean includeSubdirectories,
+      final MetadataCache directoryMetadataCache) {
+    stopWatching();
+    try {
+      directoryWatcher =
+          DirectoryWatcher.watch(
+              directory,
+              includeSubdirectories,
+              new DirectoryWatcher.Listener() {
+
+                @Override
+                public void changed(final Set<Path> paths) {
+                  // Return at once, so that the watcher keeps taking events while files are
+                  // copied in, and does not lose them
+                  if (generation == loadGeneration && !watchingStopped) {
+                    directoryLoader.execute(
+                        () -> {
+                          if (generation == loadGeneration && !watchingStopped) {
+                            directoryChanged(generation, directoryMetadataCache, paths);
+                          }
+                        });
+                  }
+                }
+
+                @Override
+                public void overflowed() {
+                  // Too many changes to follow, so list the directory again, and compare
+                  if (!watchingStopped) {
+                    directoryLoader.execute(
+                        () ->
+                            relist(
+                                generation,
+                                directory,
+                                includeSubdirectories,
+                                directoryMetadataCache));
+                  }
+                }
+              });
+      if (watchingStopped) {
+        // Files started to be renamed while the watcher was started
+        stopWatching();
+      }
+    } catch (final IOException e) {
+      logger.log(Level.CONFIG, "Cannot watch " + directory, e);
+    }
+  }
+
+  /** Watches the directory again after a rename, and lists it again to catch up. */
+  private void resumeWatching() {
+    final int generation = loadGeneration;
+    final Path directory = workingDir;
+    final boolean includeSubdirectories = recursive;
+    final MetadataCache directoryMetadataCache = metadataCache;
+    directoryLoader.execute(
+        () -> {
+          if (generation == loadGeneration) {
+            startWatching(generation, directory, includeSubdirectories, directoryMetadataCache);
+            relist(generation, directory, includeSubdirectories, directoryMetadataCache);
+          }
+        });
+  }
+
+  /** Stops watching the directory, on the directory loader thread. */
+  private void stopWatching() {
+    if (directoryWatcher != null) {
+      directoryWatcher.close();
+      directoryWatcher = null;
     }
   }
 
@@ -90,15 +705,53 @@ public class FileItemListModel extends AbstractListModel<FileItem> {
    * @param comparator Comparator for sorting.
    */
   public void sort(final Comparator<FileItem> comparator) {
-    Collections.sort(fileItems, comparator);
+    this.comparator = comparator;
+    if (comparator == FileComparator.BY_DATE) {
+      // Dates are taken once, since they may change while sorting, as metadata is loaded in the
+      // background, and files with the same date are kept in name order
+      FileSorter.sort(fileItems, FileComparator.BY_DATE, FileComparator.BY_NAME);
+
+      // Sort again when all the dates are known
+      if (isPrefetching()) {
+        sortAfterPrefetch = comparator;
+      }
+    } else {
+      if (comparator instanceof FileComparator) {
+        FileSorter.sort(fileItems, (FileComparator) comparator);
+      } else {
+        Collections.sort(fileItems, comparator);
+      }
+      sortAfterPrefetch = null;
+    }
+    inSortOrder = true;
+    reindex(0);
     fireContentsChanged(this, 0, getSize() - 1);
   }
 
+  private void startPrefetch() {
+    prefetchGeneration = prefetchGeneration + 1;
+    final int generation = prefetchGeneration;
+    prefetch =
+        metadataPrefetcher.prefetch(
+            fileItems,
+            (loaded, total) -> {
+              if (loaded == total || loaded % PROGRESS_INTERVAL == 0) {
+                SwingUtilities.invokeLater(() -> prefetchProgress(generation, loaded, total));
+              }
+            });
+    prefetch.thenRun(() -> SwingUtilities.invokeLater(() -> prefetchDone(generation)));
+  }
+
   public void swap(final int i, final int j) {
     if (i == j) {
       return;
     }
     Collections.swap(fileItems, i, j);
+    indexes.put(fileItems.get(i).getFile(), i);
+    indexes.put(fileItems.get(j).getFile(), j);
+    // Keep the order that the user has chosen
+    sortAfterPrefetch = null;
+    inSortOrder = false;
     fireContentsChanged(this, i, j);
   }
 }
@@ -12,11 +12,13 @@ import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import javax.swing.JList;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.ListSelectionModel;
 import photosrenamer.photosrenamer.FileItem;
+import photosrenamer.photosrenamer.MetadataPrefetcher.ProgressListener;
 
 /**
  * Panel for the file items sort list.
@@ -33,6 +35,7 @@ public class FileItemSortList extends JPanel {
 
   private final JList<FileItem> list;
   private final FileItemListModel listModel;
+  private final ThumbnailLoader thumbnailLoader;
 
   /** Creates a new file items sort list panel. */
   public FileItemSortList() {
@@ -46,8 +49,16 @@ public class FileItemSortList extends JPanel {
     list = new JList<>(listModel);
     list.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
     list.setSelectedIndex(0);
-    list.setCellRenderer(new FileItemThumbnailRenderer());
+    thumbnailLoader = new ThumbnailLoader();
+    list.setCellRenderer(new FileItemThumbnailRenderer(thumbnailLoader));
     final JScrollPane listScrollPane = new JScrollPane(list);
+    // Load thumbnails for the rows in view first, as the list is scrolled or changes size
+    listScrollPane
+        .getViewport()
+        .addChangeListener(
+            event ->
+                thumbnailLoader.setVisibleRange(
+                    list, list.getFirstVisibleIndex(), list.getLastVisibleIndex()));
 
     add(listScrollPane, BorderLayout.CENTER);
     list.doLayout();
@@ -57,6 +68,15 @@ public class FileItemSortList extends JPanel {
     return listModel.getFiles();
   }
 
+  /**
+   * Whether the directory is still being listed.
+   *
+   * @return True while the directory is being listed
+   */
+  public boolean isLoading() {
+    return listModel.isLoading();
+  }
+
   private boolean isContiguous(final int[] selectedIndices) {
 
     boolean isContiguous = true;
@@ -129,10 +149,45 @@ public class FileItemSortList extends JPanel {
   }
 
   public void reload() {
+    thumbnailLoader.cancelPending();
     listModel.load();
   }
 
+  /**
+   * Updates the list after files have been renamed, without loading them again.
+   *
+   * @param renames Map of old names to new names
+   */
+  public void renamed(final Map<Path, Path> renames) {
+    listModel.renamed(renames);
+  }
+
+  /** Stops watching the directory while files are renamed, until renamed() is called. */
+  public void renaming() {
+    listModel.renaming();
+  }
+
+  /**
+   * Sets the listener for progress of loading dates in the background.
+   *
+   * @param progressListener Progress listener, or null
+   */
+  public void setProgressListener(final ProgressListener progressListener) {
+    listModel.setProgressListener(progressListener);
+  }
+
+  /**
+   * Sets whether photos in subdirectories are listed too.
+   *
+   * @param recursive Whether to include subdirectories
+   */
+  public void setRecursive(final boolean recursive) {
+    thumbnailLoader.cancelPending();
+    listModel.setRecursive(recursive);
+  }
+
   public void setWorkingDirectory(final Path workingDirectory) {
+    thumbnailLoader.cancelPending();
     listModel.setWorkingDirectory(workingDirectory);
     list.setSelectedIndex(0);
   }
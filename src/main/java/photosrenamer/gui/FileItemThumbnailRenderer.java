@@ -7,11 +7,13 @@
 package photosrenamer.gui;
 
 import java.awt.Component;
+import java.awt.Graphics;
 import java.io.Serial;
 import javax.swing.DefaultListCellRenderer;
+import javax.swing.Icon;
 import javax.swing.JList;
-import javax.swing.SwingWorker;
 import photosrenamer.photosrenamer.FileItem;
+import photosrenamer.photosrenamer.ThumbnailArena;
 
 /**
  * Renders a file item, including the thumbnail.
@@ -20,8 +22,57 @@ import photosrenamer.photosrenamer.FileItem;
  */
 class FileItemThumbnailRenderer extends DefaultListCellRenderer {
 
+  /**
+   * Paints a thumbnail straight from the thumbnail arena. A single icon is reused for every cell,
+   * since each cell is painted right after the renderer is set up for it.
+   */
+  private final class ArenaIcon implements Icon {
+
+    private final ThumbnailArena arena = ThumbnailArena.getInstance();
+    private FileItem item;
+    private JList<?> list;
+    private int index;
+
+    @Override
+    public int getIconHeight() {
+      return arena.getHeight();
+    }
+
+    @Override
+    public int getIconWidth() {
+      return arena.getWidth();
+    }
+
+    @Override
+    public void paintIcon(final Component c, final Graphics g, final int x, final int y) {
+      if (!arena.paint(item.getThumbnailKey(), g, x, y)) {
+        // The thumbnail was evicted after the cell was set up, so paint the default icon, and load
+        // the thumbnail again, which repaints the cell
+        item.getThumbnail().paintIcon(c, g, x, y);
+        thumbnailLoader.load(item, list, index);
+      }
+    }
+
+    void setCell(final FileItem item, final JList<?> list, final int index) {
+      this.item = item;
+      this.list = list;
+      this.index = index;
+    }
+  }
+
   @Serial private static final long serialVersionUID = -8276388250252139874L;
 
+  private final transient ThumbnailLoader thumbnailLoader;
+  private final transient ArenaIcon arenaIcon;
+
+  FileItemThumbnailRenderer(final ThumbnailLoader thumbnailLoader) {
+    if (thumbnailLoader == null) {
+      throw new IllegalArgumentException("No thumbnail loader provided");
+    }
+    this.thumbnailLoader = thumbnailLoader;
+    arenaIcon = ThumbnailArena.isEnabled() ? new ArenaIcon() : null;
+  }
+
   /**
    * @see javax.swing.DefaultListCellRenderer#getListCellRendererComponent(javax.swing.JList,
    *     java.lang.Object, int, boolean, boolean)
@@ -38,26 +89,14 @@ class FileItemThumbnailRenderer extends DefaultListCellRenderer {
 
     final FileItem item = (FileItem) value;
     setText(item.toHtml());
-    setIcon(item.getThumbnail());
-
-    final SwingWorker<Integer, Void> worker =
-        new SwingWorker<Integer, Void>() {
-
-          @Override
-          protected Integer doInBackground() throws Exception {
-            item.loadMetadata();
-            return 1;
-          }
-
-          @Override
-          protected void done() {
-            setText(item.toHtml());
-            setIcon(item.getThumbnail());
-            list.repaint();
-          }
-        };
-
-    worker.execute();
+    if (arenaIcon != null && ThumbnailArena.getInstance().contains(item.getThumbnailKey())) {
+      arenaIcon.setCell(item, list, index);
+      setIcon(arenaIcon);
+    } else {
+      setIcon(item.getThumbnail());
+    }
+
+    thumbnailLoader.load(item, list, index);
 
     return this;
   }
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2004-2026, Sualeh Fatehi <sualeh@hotmail.com>
+ * This work is licensed under the Creative Commons Attribution-Noncommercial-No Derivative Works 3.0 License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/3.0/
+ * or send a letter to Creative Commons, 543 Howard Street, 5th Floor, San Francisco, California, 94105, USA.
+ */
+package photosrenamer.gui;
+
+import java.io.Serial;
+import javax.swing.JLabel;
+import javax.swing.Timer;
+import photosrenamer.photosrenamer.Metrics;
+
+/**
+ * Status bar panel that shows loading and renaming metrics, updated every second while it is
+ * showing. Latency percentiles are shown in the tool tip.
+ *
+ * @author Sualeh Fatehi
+ */
+final class MetricsPanel extends JLabel {
+
+  @Serial private static final long serialVersionUID = 3604813552089917245L;
+
+  private static final int UPDATE_MILLIS = 1000;
+
+  private final transient Metrics metrics;
+  private final Timer timer;
+
+  MetricsPanel() {
+    metrics = Metrics.getInstance();
+    timer = new Timer(UPDATE_MILLIS, event -> update());
+  }
+
+  /**
+   * Starts updating when the panel is added to a showing container.
+   *
+   * @see javax.swing.JComponent#addNotify()
+   */
+  @Override
+  public void addNotify() {
+    super.addNotify();
+    update();
+    timer.start();
+  }
+
+  /**
+   * Stops updating when the panel is removed.
+   *
+   * @see javax.swing.JComponent#removeNotify()
+   */
+  @Override
+  public void removeNotify() {
+    timer.stop();
+    super.removeNotify();
+  }
+
+  private void update() {
+    setText(
+        "%,d files | %.0f loads/s | %.0f%% hits | %d queued | %.0f moves/s "
+            .formatted(
+                metrics.getFilesScanned(),
+                metrics.getMetadataLoadsPerSecond(),
+                metrics.getThumbnailHitRate() * 100,
+                metrics.getPendingLoads(),
+                metrics.getRenameMovesPerSecond()));
+    setToolTipText(
+        ("<html>Metadata loads: %,d, p50 %.1f ms, p99 %.1f ms, %,d from the cache"
+                + "<br>Thumbnail loads: %,d, %.0f/s, p50 %.1f ms, p99 %.1f ms, %,d cancelled"
+                + "<br>Rename moves: %,d, p50 %.1f ms, p99 %.1f ms"
+                + "<br>Also available through JMX, as photosrenamer:type=Metrics</html>")
+            .formatted(
+                metrics.getMetadataLoads(),
+                metrics.getMetadataLoadMillisP50(),
+                metrics.getMetadataLoadMillisP99(),
+                metrics.getMetadataCacheHits(),
+                metrics.getThumbnailLoads(),
+                metrics.getThumbnailLoadsPerSecond(),
+                metrics.getThumbnailLoadMillisP50(),
+                metrics.getThumbnailLoadMillisP99(),
+                metrics.getThumbnailLoadsCancelled(),
+                metrics.getRenameMoves(),
+                metrics.getRenameMoveMillisP50(),
+                metrics.getRenameMoveMillisP99()));
+  }
+}
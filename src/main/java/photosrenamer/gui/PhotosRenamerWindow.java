@@ -9,6 +9,8 @@ package photosrenamer.gui;
 import java.awt.BorderLayout;
 import java.awt.Container;
 import java.awt.Dimension;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.io.File;
 import java.io.Serial;
 import java.nio.file.Path;
@@ -17,12 +19,14 @@ import java.util.logging.Logger;
 import java.util.prefs.Preferences;
 import javax.swing.ButtonGroup;
 import javax.swing.ImageIcon;
+import javax.swing.JCheckBoxMenuItem;
 import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JMenu;
 import javax.swing.JMenuBar;
 import javax.swing.JOptionPane;
+import javax.swing.JPanel;
 import javax.swing.JRadioButtonMenuItem;
 import javax.swing.JTextField;
 import javax.swing.JToolBar;
@@ -31,6 +35,7 @@ import javax.swing.WindowConstants;
 import photosrenamer.Version;
 import photosrenamer.photosrenamer.FileComparator;
 import photosrenamer.photosrenamer.FilesRenamer;
+import photosrenamer.photosrenamer.RenameJournal;
 import sf.util.ui.ExitAction;
 import sf.util.ui.GuiAction;
 
@@ -61,9 +66,29 @@ public final class PhotosRenamerWindow extends JFrame {
     return Path.of(directory).toAbsolutePath();
   }
 
+  /**
+   * Get whether photos in subdirectories are listed too.
+   *
+   * @return Whether to include subdirectories
+   */
+  private static boolean loadIncludeSubdirectories() {
+    return preferences.getBoolean("IncludeSubdirectories", false);
+  }
+
+  /**
+   * Get whether the metrics status panel is shown.
+   *
+   * @return Whether to show metrics
+   */
+  private static boolean loadShowMetrics() {
+    return preferences.getBoolean("ShowMetrics", false);
+  }
+
   private Path workingDir;
   private final FileItemSortList fileItemSortList;
   private final JLabel directoryBar;
+  private final JPanel statusBar;
+  private MetricsPanel metricsPanel;
 
   /** Creates a new instance of the Files Renamer main window. */
   public PhotosRenamerWindow() {
@@ -79,10 +104,15 @@ public final class PhotosRenamerWindow extends JFrame {
     panel.setLayout(new BorderLayout());
 
     directoryBar = new JLabel();
-    panel.add(directoryBar, BorderLayout.SOUTH);
+    statusBar = new JPanel(new BorderLayout());
+    statusBar.add(directoryBar, BorderLayout.CENTER);
+    panel.add(statusBar, BorderLayout.SOUTH);
+    setShowMetrics(loadShowMetrics());
 
     fileItemSortList = new FileItemSortList();
     fileItemSortList.setPreferredSize(new Dimension(WINDOW_WIDTH, WINDOW_HEIGHT));
+    fileItemSortList.setProgressListener(this::showProgress);
+    fileItemSortList.setRecursive(loadIncludeSubdirectories());
     panel.add(fileItemSortList, BorderLayout.CENTER);
 
     final JMenuBar menuBar = new JMenuBar();
@@ -96,9 +126,29 @@ public final class PhotosRenamerWindow extends JFrame {
     createActionMenu(menuBar, toolBar);
     createHelpMenu(menuBar, toolBar);
 
+    // Close the working directory on exit, so that cached metadata is saved
+    addWindowListener(
+        new WindowAdapter() {
+          @Override
+          public void windowClosing(final WindowEvent e) {
+            close();
+          }
+        });
+
     pack();
   }
 
+  /**
+   * Closes the working directory before disposing the window.
+   *
+   * @see java.awt.Window#dispose()
+   */
+  @Override
+  public void dispose() {
+    close();
+    super.dispose();
+  }
+
   private void close() {
     setWorkingDirectory(null);
   }
@@ -145,17 +195,32 @@ public final class PhotosRenamerWindow extends JFrame {
     renameAction.setShortcutKey(KeyStroke.getKeyStroke("control R"));
     renameAction.addActionListener(
         event -> {
+          if (fileItemSortList.isLoading()) {
+            JOptionPane.showMessageDialog(
+                PhotosRenamerWindow.this,
+                "Please wait until all the files in the directory have been listed.",
+                Version.getProductName(),
+                JOptionPane.INFORMATION_MESSAGE);
+            return;
+          }
+
+          if (recoverUnfinishedRename(workingDir)) {
+            // Files were moved on disk, so the list is out of date, and needs to be checked again
+            fileItemSortList.reload();
+            return;
+          }
           try {
             final String fileStem = stemField.getText();
 
             final FilesRenamer filesRenamer =
-                new FilesRenamer(fileItemSortList.getFiles(), fileStem);
-            filesRenamer.rename();
+                new FilesRenamer(workingDir, fileItemSortList.getFiles(), fileStem);
+            fileItemSortList.renaming();
+            fileItemSortList.renamed(filesRenamer.rename());
           } catch (final Exception e) {
             logger.log(Level.SEVERE, e.getMessage(), e);
+            // Some files may have been moved, or the list may be out of date, so list them again
+            fileItemSortList.reload();
           }
-
-          fileItemSortList.reload();
         });
     menuActions.add(renameAction);
     toolBar.add(renameAction);
@@ -182,6 +247,22 @@ public final class PhotosRenamerWindow extends JFrame {
     menuFile.addSeparator();
     toolBar.addSeparator();
 
+    final JCheckBoxMenuItem includeSubdirectories =
+        new JCheckBoxMenuItem("Include Subdirectories", loadIncludeSubdirectories());
+    includeSubdirectories.addActionListener(
+        actionevent -> setIncludeSubdirectories(includeSubdirectories.isSelected()));
+    menuFile.add(includeSubdirectories);
+
+    final JCheckBoxMenuItem showMetrics = new JCheckBoxMenuItem("Show Metrics", loadShowMetrics());
+    showMetrics.addActionListener(
+        actionevent -> {
+          preferences.putBoolean("ShowMetrics", showMetrics.isSelected());
+          setShowMetrics(showMetrics.isSelected());
+        });
+    menuFile.add(showMetrics);
+
+    menuFile.addSeparator();
+
     final ExitAction exit = new ExitAction(this, "Exit");
     menuFile.add(exit);
 
@@ -221,12 +302,86 @@ public final class PhotosRenamerWindow extends JFrame {
     }
   }
 
+  /**
+   * Offers to resume or roll back a rename that did not finish, for example because a file could
+   * not be moved.
+   *
+   * @param directory Directory that may have an unfinished rename
+   * @return True if files may have been moved, so that the directory needs to be listed again
+   */
+  private boolean recoverUnfinishedRename(final Path directory) {
+    if (!RenameJournal.exists(directory)) {
+      return false;
+    }
+
+    final Object[] options = {"Resume", "Roll Back", "Not Now"};
+    final int choice =
+        JOptionPane.showOptionDialog(
+            this,
+            "The last rename in %s did not finish.%nResume it, or roll back to the original names?"
+                .formatted(directory),
+            Version.getProductName(),
+            JOptionPane.YES_NO_CANCEL_OPTION,
+            JOptionPane.WARNING_MESSAGE,
+            null,
+            options,
+            options[0]);
+    if (choice != 0 && choice != 1) {
+      return false;
+    }
+
+    try {
+      final RenameJournal journal = RenameJournal.open(directory);
+      if (choice == 0) {
+        journal.resume(FilesRenamer.defaultParallelism());
+      } else {
+        journal.rollback(FilesRenamer.defaultParallelism());
+      }
+    } catch (final Exception e) {
+      logger.log(Level.SEVERE, e.getMessage(), e);
+    }
+    return true;
+  }
+
+  private void setIncludeSubdirectories(final boolean includeSubdirectories) {
+    preferences.putBoolean("IncludeSubdirectories", includeSubdirectories);
+    fileItemSortList.setRecursive(includeSubdirectories);
+  }
+
+  /**
+   * Shows or hides the metrics panel, next to the directory bar.
+   *
+   * @param showMetrics Whether to show metrics
+   */
+  private void setShowMetrics(final boolean showMetrics) {
+    if (showMetrics && metricsPanel == null) {
+      metricsPanel = new MetricsPanel();
+      statusBar.add(metricsPanel, BorderLayout.EAST);
+    } else if (!showMetrics && metricsPanel != null) {
+      statusBar.remove(metricsPanel);
+      metricsPanel = null;
+    }
+    statusBar.revalidate();
+    statusBar.repaint();
+  }
+
+  private void showProgress(final int loaded, final int total) {
+    if (loaded < total) {
+      directoryBar.setText("%s (reading dates, %d of %d)".formatted(workingDir, loaded, total));
+    } else {
+      directoryBar.setText(workingDir.toString());
+    }
+  }
+
   /**
    * Set working directory, or null to close.
    *
    * @param workingDir Working directory
    */
   private void setWorkingDirectory(final Path workingDir) {
+    if (workingDir != null) {
+      recoverUnfinishedRename(workingDir);
+    }
     fileItemSortList.setWorkingDirectory(workingDir);
 
     if (workingDir != null) {
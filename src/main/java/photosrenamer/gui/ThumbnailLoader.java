@@ -0,0 +1,306 @@
+/*
+ * Copyright (c) 2004-2026, Sualeh Fatehi <sualeh@hotmail.com>
+ * This work is licensed under the Creative Commons Attribution-Noncommercial-No Derivative Works 3.0 License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/3.0/
+ * or send a letter to Creative Commons, 543 Howard Street, 5th Floor, San Francisco, California, 94105, USA.
+ */
+package photosrenamer.gui;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.JList;
+import javax.swing.ListModel;
+import javax.swing.SwingUtilities;
+import photosrenamer.photosrenamer.FileItem;
+import photosrenamer.photosrenamer.Metrics;
+
+/**
+ * Loads file item metadata and thumbnails in the background, on a bounded number of worker
+ * threads. Requests for a file item that is already loaded, or already queued, are ignored. Queued
+ * requests are ordered by the visible range of the list: visible rows first, in the direction of
+ * scrolling, then rows just ahead of the visible range, and then rows just behind it. Rows that are
+ * scrolled far out of view are taken off the queue.
+ *
+ * @author Sualeh Fatehi
+ */
+final class ThumbnailLoader {
+
+  /** Visible range of rows, and the direction of scrolling. */
+  private static final class Viewport {
+
+    private final int first;
+    private final int last;
+    private final int direction;
+    private final int lookAhead;
+
+    Viewport(final int first, final int last, final int direction, final int lookAhead) {
+      this.first = first;
+      this.last = last;
+      this.direction = direction;
+      this.lookAhead = lookAhead;
+    }
+
+    /** Whether a row is too far out of view to be worth loading now. */
+    boolean isFar(final int index) {
+      return index < first - lookAhead || index > last + lookAhead;
+    }
+
+    /** Loading priority of a row, where lower values are loaded first. */
+    int priority(final int index) {
+      final int visibleCount = last - first + 1;
+      if (index >= first && index <= last) {
+        return direction >= 0 ? index - first : last - index;
+      }
+      final int distance = index > last ? index - last : first - index;
+      final boolean ahead = direction >= 0 ? index > last : index < first;
+      return ahead ? visibleCount + distance : visibleCount + lookAhead + distance;
+    }
+  }
+
+  /** Loads one file item, in order of priority. */
+  private final class LoadTask implements Runnable, Comparable<LoadTask> {
+
+    private final FileItem item;
+    private final JList<?> list;
+    private final int index;
+    private final long sequence;
+    private int priority;
+
+    LoadTask(final FileItem item, final JList<?> list, final int index, final long sequence) {
+      this.item = item;
+      this.list = list;
+      this.index = index;
+      this.sequence = sequence;
+    }
+
+    @Override
+    public int compareTo(final LoadTask other) {
+      final int comparison = Integer.compare(priority, other.priority);
+      if (comparison != 0) {
+        return comparison;
+      }
+      return Long.compare(sequence, other.sequence);
+    }
+
+    @Override
+    public void run() {
+      try {
+        item.loadThumbnail();
+      } catch (final Exception e) {
+        logger.log(Level.FINE, item.toString(), e);
+      } finally {
+        pending.remove(item);
+        SwingUtilities.invokeLater(() -> repaint(list, item, index));
+      }
+    }
+  }
+
+  private static final Logger logger = Logger.getGlobal();
+
+  /**
+   * Number of worker threads, which can be set with the "photosrenamer.thumbnail.workers" system
+   * property. Defaults to the number of processors, up to four.
+   *
+   * @return Number of worker threads
+   */
+  static int defaultWorkerCount() {
+    final int processors = Runtime.getRuntime().availableProcessors();
+    final int defaultWorkers = Math.max(1, Math.min(4, processors));
+    return Math.max(1, Integer.getInteger("photosrenamer.thumbnail.workers", defaultWorkers));
+  }
+
+  /**
+   * Number of rows beyond the visible range to load ahead, in the direction of scrolling, which can
+   * be set with the "photosrenamer.thumbnail.lookahead" system property. Rows further out of view
+   * than this, in either direction, are not loaded until they are scrolled closer. Defaults to 24.
+   *
+   * @return Number of rows
+   */
+  static int defaultLookAhead() {
+    return Math.max(0, Integer.getInteger("photosrenamer.thumbnail.lookahead", 24));
+  }
+
+  private final ThreadPoolExecutor executor;
+  private final Set<FileItem> pending;
+  private final int lookAhead;
+  private Viewport viewport;
+  private long sequence;
+  private int lookedUpFirst;
+  private int lookedUpLast;
+
+  ThumbnailLoader() {
+    this(defaultWorkerCount(), defaultLookAhead());
+  }
+
+  ThumbnailLoader(final int workers, final int lookAhead) {
+    if (workers < 1) {
+      throw new IllegalArgumentException("At least one worker is needed");
+    }
+    if (lookAhead < 0) {
+      throw new IllegalArgumentException("Look-ahead cannot be negative");
+    }
+    this.lookAhead = lookAhead;
+
+    final AtomicInteger threadCount = new AtomicInteger();
+    final ThreadFactory threadFactory =
+        runnable -> {
+          final Thread thread =
+              new Thread(runnable, "photosrenamer-thumbnail-" + threadCount.incrementAndGet());
+          thread.setDaemon(true);
+          thread.setPriority(Thread.NORM_PRIORITY - 1);
+          return thread;
+        };
+    executor =
+        new ThreadPoolExecutor(
+            workers,
+            workers,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new PriorityBlockingQueue<>(),
+            threadFactory);
+    pending = ConcurrentHashMap.newKeySet();
+    // Until the list is shown, assume that it will be shown from the top
+    viewport = new Viewport(0, 0, 1, lookAhead);
+    lookedUpFirst = -1;
+    lookedUpLast = -1;
+    Metrics.getInstance().setPendingLoads(this::pendingCount);
+  }
+
+  /** Discards all queued requests, for example when a different directory is opened. */
+  void cancelPending() {
+    executor.getQueue().clear();
+    pending.clear();
+    lookedUpFirst = -1;
+    lookedUpLast = -1;
+  }
+
+  /**
+   * Loads metadata and thumbnail for a file item in the background, and repaints the list cell
+   * when done. Does nothing if the item is already loaded, is waiting to be loaded, or is too far
+   * out of view. Called on the event dispatch thread.
+   *
+   * @param item File item to load
+   * @param list List that displays the item
+   * @param index Index of the item in the list
+   */
+  void load(final FileItem item, final JList<?> list, final int index) {
+    // Lists paint every row to work out their size, so rows out of view are not loaded yet
+    if (item.isThumbnailLoaded() || viewport.isFar(index) || !pending.add(item)) {
+      return;
+    }
+
+    sequence = sequence + 1;
+    final LoadTask task = new LoadTask(item, list, index, sequence);
+    task.priority = viewport.priority(index);
+    executor.execute(task);
+  }
+
+  /**
+   * Number of file items that are waiting to be loaded, or being loaded.
+   *
+   * @return Number of pending loads
+   */
+  int pendingCount() {
+    return pending.size();
+  }
+
+  /**
+   * Sets the rows that are visible in the list. Queued requests are put in order for the new
+   * visible range, requests for rows that are now far out of view are cancelled, and the visible
+   * rows and the rows ahead of them in the direction of scrolling are queued. Called on the event
+   * dispatch thread.
+   *
+   * @param list List
+   * @param first Index of the first visible row, or -1 if none
+   * @param last Index of the last visible row, or -1 if none
+   */
+  void setVisibleRange(final JList<?> list, final int first, final int last) {
+    lookUpVisibleThumbnails(list, first, last);
+    if (first == viewport.first && last == viewport.last) {
+      return;
+    }
+    int direction = viewport.direction;
+    if (first >= 0 && first != viewport.first) {
+      direction = first > viewport.first ? 1 : -1;
+    }
+    viewport =
+        first < 0
+            ? new Viewport(0, 0, direction, lookAhead)
+            : new Viewport(first, last, direction, lookAhead);
+
+    // Take all queued requests off the queue, and put back only the ones near the visible range,
+    // in their new order
+    final List<Runnable> queued = new ArrayList<>();
+    executor.getQueue().drainTo(queued);
+    int cancelled = 0;
+    for (final Runnable runnable : queued) {
+      final LoadTask task = (LoadTask) runnable;
+      if (viewport.isFar(task.index)) {
+        pending.remove(task.item);
+        cancelled = cancelled + 1;
+      } else {
+        task.priority = viewport.priority(task.index);
+        executor.execute(task);
+      }
+    }
+    if (cancelled > 0) {
+      Metrics.getInstance().recordThumbnailLoadsCancelled(cancelled);
+    }
+
+    if (first < 0) {
+      return;
+    }
+    // Queue the visible rows and the rows ahead, in the direction of scrolling
+    final ListModel<?> model = list.getModel();
+    final int size = model.getSize();
+    final int visibleCount = last - first + 1;
+    for (int i = 0; i < visibleCount + lookAhead; i++) {
+      final int index = direction >= 0 ? first + i : last - i;
+      if (index < 0 || index >= size) {
+        break;
+      }
+      load((FileItem) model.getElementAt(index), list, index);
+    }
+  }
+
+  /**
+   * Counts a thumbnail cache hit or miss for each row that has come into view since the last call,
+   * so that the cache statistics show whether thumbnails were ready in time.
+   */
+  private void lookUpVisibleThumbnails(final JList<?> list, final int first, final int last) {
+    if (first >= 0) {
+      final ListModel<?> model = list.getModel();
+      final int end = Math.min(last, model.getSize() - 1);
+      for (int index = first; index <= end; index++) {
+        if (index < lookedUpFirst || index > lookedUpLast) {
+          ((FileItem) model.getElementAt(index)).lookupThumbnail();
+        }
+      }
+    }
+    lookedUpFirst = first;
+    lookedUpLast = last;
+  }
+
+  private void repaint(final JList<?> list, final FileItem item, final int index) {
+    final ListModel<?> model = list.getModel();
+    if (index >= 0 && index < model.getSize() && model.getElementAt(index) == item) {
+      final Rectangle cellBounds = list.getCellBounds(index, index);
+      if (cellBounds != null) {
+        list.repaint(cellBounds);
+      }
+    } else {
+      // The list has changed since the request was made
+      list.repaint();
+    }
+  }
+}
@@ -43,75 +43,109 @@ public class AlphanumComparator implements Comparator<String> {
       return 1;
     }
 
+    // Chunks are compared as ranges of the strings, without copying them
     int thisMarker = 0;
     int thatMarker = 0;
     final int s1Length = s1.length();
     final int s2Length = s2.length();
 
     while (thisMarker < s1Length && thatMarker < s2Length) {
-      final String thisChunk = getChunk(s1, s1Length, thisMarker);
-      thisMarker += thisChunk.length();
-
-      final String thatChunk = getChunk(s2, s2Length, thatMarker);
-      thatMarker += thatChunk.length();
-
-      // If both chunks contain numeric characters, sort them
-      // numerically
-      int result = 0;
-      if (isDigit(thisChunk.charAt(0)) && isDigit(thatChunk.charAt(0))) {
-        // Simple chunk comparison by length.
-        final int thisChunkLength = thisChunk.length();
-        result = thisChunkLength - thatChunk.length();
-        // If equal, the first different number counts
-        if (result == 0) {
-          for (int i = 0; i < thisChunkLength; i++) {
-            result = thisChunk.charAt(i) - thatChunk.charAt(i);
-            if (result != 0) {
-              return result;
-            }
-          }
-        }
-      } else {
-        result = thisChunk.compareTo(thatChunk);
-      }
+      final int thisChunkEnd = getChunkEnd(s1, s1Length, thisMarker);
+      final int thatChunkEnd = getChunkEnd(s2, s2Length, thatMarker);
 
+      final int result =
+          compareChunks(s1, thisMarker, thisChunkEnd, s2, thatMarker, thatChunkEnd);
       if (result != 0) {
         return result;
       }
+
+      thisMarker = thisChunkEnd;
+      thatMarker = thatChunkEnd;
     }
 
     return s1Length - s2Length;
   }
 
-  /** Length of string is passed in for improved efficiency (only need to calculate it once) */
-  private final String getChunk(final String s, final int slength, int marker) {
-    final StringBuilder chunk = new StringBuilder();
-    char c = s.charAt(marker);
-    chunk.append(c);
-    marker++;
-    if (isDigit(c)) {
-      while (marker < slength) {
-        c = s.charAt(marker);
-        if (!isDigit(c)) {
-          break;
-        }
-        chunk.append(c);
-        marker++;
+  /**
+   * Splits a string into chunks of digits and of other characters, as the comparison does.
+   *
+   * @param s String to split
+   * @return End index of each chunk
+   */
+  static int[] chunkEnds(final String s) {
+    final int slength = s.length();
+    int chunkCount = 0;
+    for (int marker = 0; marker < slength; marker = getChunkEnd(s, slength, marker)) {
+      chunkCount++;
+    }
+    final int[] chunkEnds = new int[chunkCount];
+    int marker = 0;
+    for (int i = 0; i < chunkCount; i++) {
+      marker = getChunkEnd(s, slength, marker);
+      chunkEnds[i] = marker;
+    }
+    return chunkEnds;
+  }
+
+  /**
+   * Compares a chunk of one string with a chunk of another, as the comparison does. Chunks that
+   * both start with a digit are compared numerically, and other chunks are compared as strings.
+   * Numbers are compared digit by digit, so numbers of any length can be compared.
+   *
+   * @param s1 First string
+   * @param start1 Start of the first chunk
+   * @param end1 End of the first chunk
+   * @param s2 Second string
+   * @param start2 Start of the second chunk
+   * @param end2 End of the second chunk
+   * @return Comparison result for the two chunks
+   */
+  static int compareChunks(
+      final CharSequence s1,
+      final int start1,
+      final int end1,
+      final CharSequence s2,
+      final int start2,
+      final int end2) {
+    final int length1 = end1 - start1;
+    final int length2 = end2 - start2;
+    if (isDigit(s1.charAt(start1)) && isDigit(s2.charAt(start2))) {
+      // Simple chunk comparison by length, so leading zeros make a number larger. If equal, the
+      // first different number counts
+      if (length1 != length2) {
+        return length1 - length2;
       }
-    } else {
-      while (marker < slength) {
-        c = s.charAt(marker);
-        if (isDigit(c)) {
-          break;
+      for (int i = 0; i < length1; i++) {
+        final int result = s1.charAt(start1 + i) - s2.charAt(start2 + i);
+        if (result != 0) {
+          return result;
         }
-        chunk.append(c);
-        marker++;
       }
+      return 0;
+    }
+
+    // Same as comparing the chunks with String.compareTo
+    final int length = Math.min(length1, length2);
+    for (int i = 0; i < length; i++) {
+      final int result = s1.charAt(start1 + i) - s2.charAt(start2 + i);
+      if (result != 0) {
+        return result;
+      }
+    }
+    return length1 - length2;
+  }
+
+  /** Length of string is passed in for improved efficiency (only need to calculate it once) */
+  private static int getChunkEnd(final CharSequence s, final int slength, final int start) {
+    final boolean digits = isDigit(s.charAt(start));
+    int marker = start + 1;
+    while (marker < slength && isDigit(s.charAt(marker)) == digits) {
+      marker++;
     }
-    return chunk.toString();
+    return marker;
   }
 
-  private final boolean isDigit(final char ch) {
+  private static boolean isDigit(final char ch) {
     return ch >= 48 && ch <= 57;
   }
 }
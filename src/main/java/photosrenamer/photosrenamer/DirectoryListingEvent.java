@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2004-2026, Sualeh Fatehi <sualeh@hotmail.com>
+ * This work is licensed under the Creative Commons Attribution-Noncommercial-No Derivative Works 3.0 License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/3.0/
+ * or send a letter to Creative Commons, 543 Howard Street, 5th Floor, San Francisco, California, 94105, USA.
+ */
+package photosrenamer.photosrenamer;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for listing the image files in a directory.
+ *
+ * @author Sualeh Fatehi
+ */
+@Name("photosrenamer.DirectoryListing")
+@Label("Directory Listing")
+@Category({"Photos Renamer", "Loading"})
+@Description("Listing the image files in a directory, and reading their file attributes")
+@StackTrace(false)
+final class DirectoryListingEvent extends Event {
+
+  @Label("Directory")
+  String directory;
+
+  @Label("Include Subdirectories")
+  boolean recursive;
+
+  @Label("File Count")
+  int fileCount;
+}
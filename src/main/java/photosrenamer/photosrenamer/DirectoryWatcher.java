@@ -0,0 +1,252 @@
+/*
+ * Copyright (c) 2004-2026, Sualeh Fatehi <sualeh@hotmail.com>
+ * This work is licensed under the Creative Commons Attribution-Noncommercial-No Derivative Works 3.0 License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/3.0/
+ * or send a letter to Creative Commons, 543 Howard Street, 5th Floor, San Francisco, California, 94105, USA.
+ */
+package photosrenamer.photosrenamer;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Watches a directory, and optionally all of its subdirectories, for files that are created,
+ * deleted or modified by any process. Changes are collected until the directory has been quiet for
+ * a moment, so that copying many files, or writing a large one, is reported in a few batches
+ * rather than event by event.
+ *
+ * @author Sualeh Fatehi
+ */
+public final class DirectoryWatcher implements Closeable {
+
+  /** Receives changes, on the watcher thread. */
+  public interface Listener {
+
+    /**
+     * Called with the paths of files and directories that have been created, deleted or modified.
+     * The paths may no longer exist, and a path may have been deleted and created again.
+     *
+     * @param paths Changed paths
+     */
+    void changed(Set<Path> paths);
+
+    /** Called when changes were lost, because too many happened at once. */
+    void overflowed();
+  }
+
+  private static final Logger logger = Logger.getGlobal();
+
+  private static final long QUIET_MILLIS = 250;
+  private static final long MAX_DELAY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  /**
+   * Starts watching a directory, on a new daemon thread.
+   *
+   * @param directory Directory to watch
+   * @param recursive Whether to watch subdirectories too
+   * @param listener Receives changes
+   * @return Directory watcher, which needs to be closed to stop watching
+   * @throws IOException On an exception registering the directory
+   */
+  public static DirectoryWatcher watch(
+      final Path directory, final boolean recursive, final Listener listener) throws IOException {
+    final WatchService watchService = directory.getFileSystem().newWatchService();
+    final DirectoryWatcher watcher =
+        new DirectoryWatcher(directory, recursive, listener, watchService);
+    try {
+      watcher.register(directory, null);
+    } catch (final IOException e) {
+      watcher.close();
+      throw e;
+    }
+    watcher.thread.start();
+    return watcher;
+  }
+
+  private final Path directory;
+  private final boolean recursive;
+  private final Listener listener;
+  private final WatchService watchService;
+  private final Map<WatchKey, Path> directories;
+  private final Thread thread;
+
+  private DirectoryWatcher(
+      final Path directory,
+      final boolean recursive,
+      final Listener listener,
+      final WatchService watchService) {
+    if (listener == null) {
+      throw new IllegalArgumentException("No listener provided");
+    }
+    this.directory = directory;
+    this.recursive = recursive;
+    this.listener = listener;
+    this.watchService = watchService;
+    directories = new ConcurrentHashMap<>();
+    thread = new Thread(this::run, "photosrenamer-directory-watcher");
+    thread.setDaemon(true);
+  }
+
+  /** Stops watching. Changes that have not been reported yet are discarded. */
+  @Override
+  public void close() {
+    try {
+      watchService.close();
+    } catch (final IOException e) {
+      logger.log(Level.FINE, directory.toString(), e);
+    }
+  }
+
+  /**
+   * Directory that is watched.
+   *
+   * @return Watched directory
+   */
+  public Path getDirectory() {
+    return directory;
+  }
+
+  /**
+   * Whether subdirectories are watched too.
+   *
+   * @return True if subdirectories are watched
+   */
+  public boolean isRecursive() {
+    return recursive;
+  }
+
+  /**
+   * Takes the events for a watch key.
+   *
+   * @return True if events were lost
+   */
+  private boolean pollEvents(final WatchKey key, final Set<Path> changed) {
+    boolean overflowed = false;
+    final Path keyDirectory = directories.get(key);
+    for (final WatchEvent<?> event : key.pollEvents()) {
+      if (event.kind() == OVERFLOW || keyDirectory == null) {
+        overflowed = overflowed || event.kind() == OVERFLOW;
+        continue;
+      }
+
+      final Path path = keyDirectory.resolve((Path) event.context());
+      changed.add(path);
+      if (recursive
+          && event.kind() == ENTRY_CREATE
+          && Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+        // Files may have been created in the new directory before it was registered
+        try {
+          register(path, changed);
+        } catch (final IOException e) {
+          logger.log(Level.FINE, path.toString(), e);
+        }
+      }
+    }
+    if (!key.reset()) {
+      // The directory has been deleted
+      directories.remove(key);
+    }
+    return overflowed;
+  }
+
+  /** Registers a directory, and its subdirectories if needed, and adds any files found. */
+  private void register(final Path start, final Set<Path> files) throws IOException {
+    if (!recursive) {
+      directories.put(register(start), start);
+      return;
+    }
+
+    Files.walkFileTree(
+        start,
+        new SimpleFileVisitor<>() {
+
+          @Override
+          public FileVisitResult preVisitDirectory(
+              final Path dir, final BasicFileAttributes attributes) throws IOException {
+            directories.put(register(dir), dir);
+            return FileVisitResult.CONTINUE;
+          }
+
+          @Override
+          public FileVisitResult visitFile(final Path file, final BasicFileAttributes attributes) {
+            if (files != null) {
+              files.add(file);
+            }
+            return FileVisitResult.CONTINUE;
+          }
+
+          @Override
+          public FileVisitResult visitFileFailed(final Path file, final IOException e)
+              throws IOException {
+            if (file.equals(start)) {
+              throw e;
+            }
+            logger.log(Level.FINE, file.toString(), e);
+            return FileVisitResult.CONTINUE;
+          }
+        });
+  }
+
+  private WatchKey register(final Path dir) throws IOException {
+    return dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+  }
+
+  private void run() {
+    try {
+      while (!directories.isEmpty()) {
+        WatchKey key = watchService.take();
+
+        // Collect changes until there is a pause, or for at most the maximum delay
+        final Set<Path> changed = new LinkedHashSet<>();
+        boolean overflowed = false;
+        final long deadlineNanos = System.nanoTime() + MAX_DELAY_NANOS;
+        while (key != null) {
+          overflowed = pollEvents(key, changed) || overflowed;
+          final long remainingMillis =
+              TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+          key =
+              remainingMillis > 0
+                  ? watchService.poll(
+                      Math.min(QUIET_MILLIS, remainingMillis), TimeUnit.MILLISECONDS)
+                  : null;
+        }
+
+        try {
+          if (overflowed) {
+            listener.overflowed();
+          } else if (!changed.isEmpty()) {
+            listener.changed(changed);
+          }
+        } catch (final RuntimeException e) {
+          logger.log(Level.WARNING, directory.toString(), e);
+        }
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (final ClosedWatchServiceException e) {
+      // Closed, so stop watching
+    }
+  }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2004-2026, Sualeh Fatehi <sualeh@hotmail.com>
+ * This work is licensed under the Creative Commons Attribution-Noncommercial-No Derivative Works 3.0 License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/3.0/
+ * or send a letter to Creative Commons, 543 Howard Street, 5th Floor, San Francisco, California, 94105, USA.
+ */
+package photosrenamer.photosrenamer;
+
+import com.drew.imaging.jpeg.JpegProcessingException;
+import com.drew.imaging.jpeg.JpegSegmentData;
+import com.drew.imaging.jpeg.JpegSegmentType;
+import com.drew.metadata.Metadata;
+import com.drew.metadata.exif.ExifReader;
+import com.drew.metadata.exif.ExifThumbnailDirectory;
+import com.drew.metadata.iptc.IptcReader;
+import com.drew.metadata.photoshop.PhotoshopReader;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+import javax.imageio.ImageIO;
+
+/**
+ * Reads JPEG metadata segments, and the small preview image that most cameras embed in the EXIF
+ * segment, so that a thumbnail can be created without decoding the full image.
+ *
+ * @author Sualeh Fatehi
+ */
+final class EmbeddedThumbnail {
+
+  private static final Set<JpegSegmentType> EXIF_SEGMENT_TYPES = EnumSet.of(JpegSegmentType.APP1);
+  private static final Set<JpegSegmentType> METADATA_SEGMENT_TYPES =
+      EnumSet.of(JpegSegmentType.APP1, JpegSegmentType.APPD);
+
+  /**
+   * Checks whether a file is a JPEG file, from the file extension.
+   *
+   * @param file File
+   * @return True for JPEG files
+   */
+  static boolean isJpeg(final Path file) {
+    final String filename = String.valueOf(file.getFileName()).toLowerCase(Locale.ENGLISH);
+    return filename.endsWith(".jpg") || filename.endsWith(".jpeg");
+  }
+
+  /**
+   * Reads the EXIF segments of a JPEG file, and extracts EXIF metadata from them.
+   *
+   * @param file JPEG file
+   * @param metadata Metadata to add the EXIF directories to
+   * @return Segments that were read
+   * @throws JpegProcessingException On a malformed JPEG file
+   * @throws IOException On an exception reading the file
+   */
+  static JpegSegmentData readExifSegments(final Path file, final Metadata metadata)
+      throws JpegProcessingException, IOException {
+    final JpegSegmentData segments = JpegSegments.read(file, EXIF_SEGMENT_TYPES);
+    readExif(segments, metadata);
+    return segments;
+  }
+
+  /**
+   * Reads the EXIF and IPTC segments of a JPEG file, and extracts metadata from them. Other
+   * segments, such as XMP and ICC profiles, are skipped without being read. The segments are kept,
+   * so that the embedded thumbnail can be read from them later.
+   *
+   * @param file JPEG file
+   * @param metadata Metadata to add the directories to
+   * @return Segments that were read
+   * @throws JpegProcessingException On a malformed JPEG file
+   * @throws IOException On an exception reading the file
+   */
+  static JpegSegmentData readMetadataSegments(final Path file, final Metadata metadata)
+      throws JpegProcessingException, IOException {
+    final JpegSegmentData segments = JpegSegments.read(file, METADATA_SEGMENT_TYPES);
+    readExif(segments, metadata);
+
+    // IPTC data is usually stored in Photoshop resources, but can also be stored directly
+    final Iterable<byte[]> iptcSegments = segments.getSegments(JpegSegmentType.APPD);
+    new PhotoshopReader().readJpegSegments(iptcSegments, metadata, JpegSegmentType.APPD);
+    new IptcReader().readJpegSegments(iptcSegments, metadata, JpegSegmentType.APPD);
+    return segments;
+  }
+
+  /**
+   * Decodes the thumbnail image embedded in the EXIF segment.
+   *
+   * @param segments JPEG segments, including the EXIF segment
+   * @param metadata Metadata extracted from the segments
+   * @return Thumbnail image, or null if there is no embedded thumbnail
+   * @throws IOException On an exception decoding the thumbnail
+   */
+  static BufferedImage readThumbnail(final JpegSegmentData segments, final Metadata metadata)
+      throws IOException {
+    if (segments == null || metadata == null) {
+      return null;
+    }
+    final ExifThumbnailDirectory thumbnailDirectory =
+        metadata.getFirstDirectoryOfType(ExifThumbnailDirectory.class);
+    if (thumbnailDirectory == null
+        || !thumbnailDirectory.containsTag(ExifThumbnailDirectory.TAG_THUMBNAIL_LENGTH)) {
+      return null;
+    }
+    final Integer offset = thumbnailDirectory.getAdjustedThumbnailOffset();
+    final Integer length =
+        thumbnailDirectory.getInteger(ExifThumbnailDirectory.TAG_THUMBNAIL_LENGTH);
+    if (offset == null || length == null || offset < 0 || length <= 0) {
+      return null;
+    }
+
+    // The offset is relative to the start of the EXIF segment
+    for (final byte[] segment : segments.getSegments(JpegSegmentType.APP1)) {
+      if (!ExifReader.startsWithJpegExifPreamble(segment)) {
+        continue;
+      }
+      if (offset + length > segment.length) {
+        return null;
+      }
+      return ImageIO.read(new ByteArrayInputStream(segment, offset, length));
+    }
+    return null;
+  }
+
+  private static void readExif(final JpegSegmentData segments, final Metadata metadata) {
+    new ExifReader()
+        .readJpegSegments(
+            segments.getSegments(JpegSegmentType.APP1), metadata, JpegSegmentType.APP1);
+  }
+
+  private EmbeddedThumbnail() {}
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2004-2026, Sualeh Fatehi <sualeh@hotmail.com>
+ * This work is licensed under the Creative Commons Attribution-Noncommercial-No Derivative Works 3.0 License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/3.0/
+ * or send a letter to Creative Commons, 543 Howard Street, 5th Floor, San Francisco, California, 94105, USA.
+ */
+package photosrenamer.photosrenamer;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+
+/**
+ * Identifies the contents of a file independently of its name, using the size, the last modified
+ * time, and the file key (inode) where the file system provides one. On file systems without file
+ * keys, the path of the file relative to the cached directory is used instead, so the identity
+ * does not survive a rename there.
+ *
+ * @author Sualeh Fatehi
+ */
+public final class FileIdentity implements Serializable {
+
+  @Serial private static final long serialVersionUID = 2372548395014395620L;
+
+  /**
+   * Creates the identity of a file from its attributes. Without a file key, the absolute path of
+   * the file is used.
+   *
+   * @param file File
+   * @param attributes Attributes of the file
+   * @return File identity
+   */
+  public static FileIdentity of(final Path file, final BasicFileAttributes attributes) {
+    return of(file, attributes, null);
+  }
+
+  /**
+   * Creates the identity of a file from its attributes. Without a file key, the path of the file
+   * relative to the cached directory is used, so that files with the same name in different
+   * subdirectories have different identities.
+   *
+   * @param file File
+   * @param attributes Attributes of the file
+   * @param directory Cached directory, or null to use the absolute path of the file
+   * @return File identity
+   */
+  public static FileIdentity of(
+      final Path file, final BasicFileAttributes attributes, final Path directory) {
+    if (file == null || attributes == null) {
+      throw new IllegalArgumentException();
+    }
+    final Object fileKey = attributes.fileKey();
+    final String key;
+    if (fileKey != null) {
+      key = fileKey.toString();
+    } else {
+      key = pathKey(file, directory);
+    }
+    return new FileIdentity(attributes.size(), attributes.lastModifiedTime().toMillis(), key);
+  }
+
+  private static String pathKey(final Path file, final Path directory) {
+    final Path absoluteFile = file.toAbsolutePath().normalize();
+    if (directory != null) {
+      final Path absoluteDirectory = directory.toAbsolutePath().normalize();
+      if (absoluteFile.startsWith(absoluteDirectory)) {
+        return absoluteDirectory.relativize(absoluteFile).toString();
+      }
+    }
+    return absoluteFile.toString();
+  }
+
+  private final long size;
+  private final long lastModified;
+  private final String key;
+
+  FileIdentity(final long size, final long lastModified, final String key) {
+    this.size = size;
+    this.lastModified = lastModified;
+    this.key = Objects.requireNonNull(key);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @see java.lang.Object#equals(java.lang.Object)
+   */
+  @Override
+  public boolean equals(final Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof FileIdentity)) {
+      return false;
+    }
+    final FileIdentity other = (FileIdentity) o;
+    return size == other.size && lastModified == other.lastModified && key.equals(other.key);
+  }
+
+  /**
+   * File key, or file path if the file system does not provide file keys.
+   *
+   * @return File key
+   */
+  public String getKey() {
+    return key;
+  }
+
+  /**
+   * Last modified time, in milliseconds since the epoch.
+   *
+   * @return Last modified time
+   */
+  public long getLastModified() {
+    return lastModified;
+  }
+
+  /**
+   * File size in bytes.
+   *
+   * @return File size
+   */
+  public long getSize() {
+    return size;
+  }
+
+  /**
+   * Identity of the same file after it has been renamed. Only identities that use the file path,
+   * on file systems without file keys, change.
+   *
+   * @param file Old name of the file
+   * @param renamedFile New name of the file
+   * @param directory Cached directory, or null if the absolute path of the file is used
+   * @return File identity after the rename
+   */
+  public FileIdentity renamed(final Path file, final Path renamedFile, final Path directory) {
+    if (key.equals(pathKey(file, directory))) {
+      return new FileIdentity(size, lastModified, pathKey(renamedFile, directory));
+    }
+    return this;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @see java.lang.Object#hashCode()
+   */
+  @Override
+  public int hashCode() {
+    int result;
+    result = Long.hashCode(size);
+    result = 29 * result + Long.hashCode(lastModified);
+    result = 29 * result + key.hashCode();
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return "FileIdentity [size=" + size + ", modified=" + lastModified + ", key=" + key + "]";
+  }
+}
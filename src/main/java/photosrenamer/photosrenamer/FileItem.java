@@ -7,6 +7,7 @@
 package photosrenamer.photosrenamer;
 
 import com.drew.imaging.ImageMetadataReader;
+import com.drew.imaging.jpeg.JpegSegmentData;
 import com.drew.metadata.Directory;
 import com.drew.metadata.Metadata;
 import com.drew.metadata.exif.ExifDirectoryBase;
@@ -16,18 +17,13 @@ import com.drew.metadata.iptc.IptcDirectory;
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.Graphics2D;
-import java.awt.Image;
-import java.awt.Toolkit;
 import java.awt.image.BufferedImage;
-import java.awt.image.CropImageFilter;
-import java.awt.image.FilteredImageSource;
 import java.io.IOException;
 import java.io.Serial;
 import java.io.Serializable;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.attribute.BasicFileAttributes;
-import java.nio.file.attribute.FileTime;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
@@ -35,18 +31,35 @@ import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import javax.imageio.ImageIO;
 import javax.swing.ImageIcon;
 
 /**
  * Represents an image file, and metadata.
  *
+ * <p>A file item that is created with a metadata cache also keeps its thumbnail in the per-user
+ * {@link ThumbnailStore}, next to the metadata cache. A file item without a metadata cache reads
+ * and writes nothing on disk other than the file itself.
+ *
  * @author Sualeh Fatehi
  */
 public final class FileItem implements Serializable {
 
+  private static final class DefaultImageIcon {
+
+    /** Default icon, until the image is loaded. Created on first use. */
+    private static final ImageIcon DEFAULT_IMAGE_ICON = createDefaultImageIcon();
+  }
+
   private final class MetadataLoader implements Runnable {
 
+    private final boolean withThumbnail;
+    private Metadata metadata;
+    private JpegSegmentData segments;
+
+    MetadataLoader(final boolean withThumbnail) {
+      this.withThumbnail = withThumbnail;
+    }
+
     private Instant earliestInstant(final Instant instant1, final Instant instant2) {
       if ((instant1 == null) || !(instant2 == null || instant1.isBefore(instant2))) {
         return instant2;
@@ -80,13 +93,97 @@ public final class FileItem implements Serializable {
       return instant;
     }
 
+    private BufferedImage loadEmbeddedThumbnail() {
+      try {
+        if (metadata == null) {
+          // Metadata was cached, so read only the EXIF segment
+          metadata = new Metadata();
+          segments = EmbeddedThumbnail.readExifSegments(file, metadata);
+        }
+        return EmbeddedThumbnail.readThumbnail(segments, metadata);
+      } catch (final Exception e) {
+        logger.log(Level.FINE, FileItem.this.toString(), e);
+      }
+      return null;
+    }
+
+    private void cacheThumbnail(final BufferedImage image) {
+      final ThumbnailScaleEvent event = new ThumbnailScaleEvent();
+      event.begin();
+      final BufferedImage thumbnail = ThumbnailImages.scale(image, IMAGE_WIDTH, IMAGE_HEIGHT);
+      event.end();
+      if (event.shouldCommit()) {
+        event.path = file.toString();
+        event.sourceWidth = image.getWidth();
+        event.sourceHeight = image.getHeight();
+        event.width = thumbnail.getWidth();
+        event.height = thumbnail.getHeight();
+        event.commit();
+      }
+
+      putThumbnail(thumbnail);
+      if (metadataCache != null) {
+        ThumbnailStore.getInstance().save(identity, thumbnail);
+      }
+    }
+
+    private void commit(
+        final ThumbnailDecodeEvent event, final String source, final BufferedImage image) {
+      event.end();
+      if (event.shouldCommit()) {
+        event.path = file.toString();
+        event.source = source;
+        if (image != null) {
+          event.width = image.getWidth();
+          event.height = image.getHeight();
+        }
+        event.commit();
+      }
+    }
+
+    private void putThumbnail(final BufferedImage thumbnail) {
+      if (ThumbnailArena.isEnabled()) {
+        ThumbnailArena.getInstance().put(getThumbnailKey(), thumbnail);
+      } else {
+        ThumbnailCache.getInstance().put(getThumbnailKey(), new ImageIcon(thumbnail));
+      }
+    }
+
     private boolean loadImageThumbnail() {
       logger.log(Level.FINEST, FileItem.this + ": Entered MetadataLoader:loadImageThumbnail");
       boolean loaded = false;
       try {
-        final Image image = ImageIO.read(file.toFile());
+        if (metadataCache != null) {
+          final ThumbnailDecodeEvent event = new ThumbnailDecodeEvent();
+          event.begin();
+          final BufferedImage thumbnail =
+              ThumbnailStore.getInstance().load(identity, IMAGE_WIDTH, IMAGE_HEIGHT);
+          commit(event, "store", thumbnail);
+          if (thumbnail != null) {
+            putThumbnail(thumbnail);
+            logger.log(Level.FINEST, FileItem.this + ": Thumbnail loaded from thumbnail store");
+            return true;
+          }
+        }
+
+        if (EmbeddedThumbnail.isJpeg(file)) {
+          final ThumbnailDecodeEvent event = new ThumbnailDecodeEvent();
+          event.begin();
+          final BufferedImage image = loadEmbeddedThumbnail();
+          commit(event, "embedded", image);
+          if (image != null) {
+            cacheThumbnail(image);
+            logger.log(Level.INFO, FileItem.this + ": Thumbnail created from embedded thumbnail");
+            return true;
+          }
+        }
+
+        final ThumbnailDecodeEvent event = new ThumbnailDecodeEvent();
+        event.begin();
+        final BufferedImage image = ThumbnailImages.readSubsampled(file, IMAGE_WIDTH);
+        commit(event, "image", image);
         if (image != null) {
-          thumbnail = new ImageIcon(scaleImage(image));
+          cacheThumbnail(image);
           logger.log(Level.INFO, FileItem.this + ": Thumbnail created by scaling image");
           loaded = true;
         }
@@ -106,7 +203,59 @@ public final class FileItem implements Serializable {
       logger.log(Level.FINEST, FileItem.this + ": Entered MetadataLoader");
 
       try {
-        final Metadata metadata = ImageMetadataReader.readMetadata(file.toFile());
+        if (!metadataLoaded) {
+          final long startNanos = System.nanoTime();
+          final MetadataParseEvent event = new MetadataParseEvent();
+          event.begin();
+          final MetadataCache.Entry cachedMetadata =
+              metadataCache == null ? null : metadataCache.get(identity);
+          if (cachedMetadata != null) {
+            logger.log(Level.FINEST, FileItem.this + ": Metadata loaded from cache");
+            comment = cachedMetadata.getComment();
+            creationInstant = earliestInstant(cachedMetadata.getInstant(), creationInstant);
+            event.cached = true;
+            Metrics.getInstance().recordMetadataCacheHit();
+          } else {
+            event.bytesRead = loadImageMetadata();
+            // Cache hits take microseconds, so only parses are timed
+            Metrics.getInstance().recordMetadataLoad(System.nanoTime() - startNanos);
+          }
+          event.end();
+          if (event.shouldCommit()) {
+            event.path = file.toString();
+            event.commit();
+          }
+        }
+
+        if (withThumbnail) {
+          final long startNanos = System.nanoTime();
+          if (!loadImageThumbnail()) {
+            thumbnailUnavailable = true;
+          }
+          Metrics.getInstance().recordThumbnailLoad(System.nanoTime() - startNanos);
+        }
+
+      } catch (final Exception e) {
+        logger.log(Level.FINE, FileItem.this.toString(), e);
+      }
+    }
+
+    /**
+     * Reads the date and caption from the image metadata.
+     *
+     * @return Number of bytes of metadata read, or the file size if the whole file may be read
+     */
+    private long loadImageMetadata() {
+      long bytesRead = 0;
+      try {
+        if (EmbeddedThumbnail.isJpeg(file)) {
+          metadata = new Metadata();
+          segments = EmbeddedThumbnail.readMetadataSegments(file, metadata);
+          bytesRead = JpegSegments.size(segments);
+        } else {
+          metadata = ImageMetadataReader.readMetadata(file.toFile());
+          bytesRead = identity.getSize();
+        }
 
         final ExifIFD0Directory exifDirectory =
             metadata.getFirstDirectoryOfType(ExifIFD0Directory.class);
@@ -123,61 +272,42 @@ public final class FileItem implements Serializable {
         final Instant instant3 =
             loadImageCreationInstantFromMetadata(
                 exifSubDirectory, ExifDirectoryBase.TAG_DATETIME_ORIGINAL);
-        final Instant instant4 = loadCreationInstantFromFile();
+        final Instant instant4 = fileCreationInstant;
 
-        creationInstant = earliestInstant(instant1, creationInstant);
-        creationInstant = earliestInstant(instant2, creationInstant);
-        creationInstant = earliestInstant(instant3, creationInstant);
-        creationInstant = earliestInstant(instant4, creationInstant);
+        Instant metadataInstant = earliestInstant(instant1, instant2);
+        metadataInstant = earliestInstant(instant3, metadataInstant);
+        if (metadataCache != null) {
+          metadataCache.put(identity, metadataInstant, comment);
+        }
 
-        loadImageThumbnail();
+        creationInstant =
+            earliestInstant(instant4, earliestInstant(metadataInstant, creationInstant));
 
       } catch (final Exception e) {
         logger.log(Level.FINE, FileItem.this.toString(), e);
       }
-    }
-
-    private Image scaleImage(final Image image) {
-      Image scaledImage = image.getScaledInstance(IMAGE_WIDTH, -1, Image.SCALE_AREA_AVERAGING);
-
-      // Create a buffered image from the scaled image,
-      // with a white background
-      final BufferedImage bufferedImage =
-          new BufferedImage(IMAGE_WIDTH, IMAGE_HEIGHT, BufferedImage.TYPE_INT_RGB);
-      final Graphics2D g2d = bufferedImage.createGraphics();
-      g2d.setColor(Color.WHITE);
-      g2d.fillRect(0, 0, IMAGE_WIDTH, IMAGE_HEIGHT);
-      g2d.drawImage(scaledImage, null, null);
-
-      // Release resources
-      g2d.dispose();
-      bufferedImage.flush();
-
-      scaledImage.flush();
-      scaledImage = null;
-      image.flush();
-
-      // Crop the image to size
-      final CropImageFilter filter = new CropImageFilter(0, 0, IMAGE_WIDTH, IMAGE_HEIGHT);
-      final Image thumbnail =
-          Toolkit.getDefaultToolkit()
-              .createImage(new FilteredImageSource(bufferedImage.getSource(), filter));
-      return thumbnail;
+      return bytesRead;
     }
   }
 
   private static final DateTimeFormatter dateTimeFormatter =
       DateTimeFormatter.ISO_LOCAL_DATE_TIME.withZone(ZoneId.from(ZoneOffset.UTC));
 
-  /** Default icon, until the image is loaded. */
-  public static final ImageIcon DEFAULT_IMAGE_ICON = createDefaultImageIcon();
+  /**
+   * Default icon, until the image is loaded.
+   *
+   * @deprecated Use {@link #getThumbnail()}, which returns the default icon until the thumbnail is
+   *     loaded. Referencing this constant creates the icon, even when no thumbnails are shown.
+   */
+  @Deprecated
+  public static final ImageIcon DEFAULT_IMAGE_ICON = DefaultImageIcon.DEFAULT_IMAGE_ICON;
 
   private static final Logger logger = Logger.getGlobal();
 
   @Serial private static final long serialVersionUID = -4057318666488966541L;
 
-  private static final int IMAGE_WIDTH = 180;
-  private static final int IMAGE_HEIGHT = (int) (IMAGE_WIDTH * 2F / 3F);
+  static final int IMAGE_WIDTH = 180;
+  static final int IMAGE_HEIGHT = (int) (IMAGE_WIDTH * 2F / 3F);
 
   private static ImageIcon createDefaultImageIcon() {
 
@@ -199,10 +329,14 @@ public final class FileItem implements Serializable {
   }
 
   private final Path file;
-  private Instant creationInstant;
-  private ImageIcon thumbnail;
-  private String comment;
-  private boolean metadataLoaded;
+  private final FileIdentity identity;
+  private final Instant fileCreationInstant;
+  private final transient MetadataCache metadataCache;
+  // Metadata is loaded on loader and prefetch threads, and read on the event dispatch thread
+  private volatile Instant creationInstant;
+  private volatile String comment;
+  private volatile boolean metadataLoaded;
+  private volatile boolean thumbnailUnavailable;
 
   /**
    * Create a file item from a file.
@@ -210,14 +344,53 @@ public final class FileItem implements Serializable {
    * @param file File item to create.
    */
   public FileItem(final Path file) {
+    this(file, null);
+  }
+
+  /**
+   * Create a file item from a file, using a cache for image metadata.
+   *
+   * @param file File item to create.
+   * @param metadataCache Metadata cache, or null if neither metadata nor the thumbnail is kept on
+   *     disk.
+   */
+  public FileItem(final Path file, final MetadataCache metadataCache) {
+    this(file, readAttributes(file), metadataCache);
+  }
+
+  /**
+   * Create a file item from a file, with file attributes that have already been read, for example
+   * while walking a directory tree.
+   *
+   * @param file File item to create.
+   * @param attributes File attributes, or null if they could not be read.
+   * @param metadataCache Metadata cache, or null if neither metadata nor the thumbnail is kept on
+   *     disk.
+   */
+  public FileItem(
+      final Path file, final BasicFileAttributes attributes, final MetadataCache metadataCache) {
+    this(
+        file,
+        attributes == null || file == null
+            ? null
+            : FileIdentity.of(file, attributes, cachedDirectory(metadataCache)),
+        attributes == null ? null : attributes.creationTime().toInstant(),
+        metadataCache);
+  }
+
+  private FileItem(
+      final Path file,
+      final FileIdentity identity,
+      final Instant fileCreationInstant,
+      final MetadataCache metadataCache) {
     if (file == null) {
       throw new IllegalArgumentException();
     }
     this.file = file;
-
-    thumbnail = DEFAULT_IMAGE_ICON;
-
-    creationInstant = loadCreationInstantFromFile();
+    this.identity = identity;
+    this.fileCreationInstant = fileCreationInstant;
+    this.metadataCache = metadataCache;
+    creationInstant = fileCreationInstant;
 
     comment = "";
   }
@@ -267,14 +440,50 @@ public final class FileItem implements Serializable {
   }
 
   /**
-   * Thumbnail.
+   * Gets the identity of the file contents, which does not change when the file is renamed.
+   *
+   * @return File identity, or null if the file attributes could not be read.
+   */
+  public FileIdentity getIdentity() {
+    return identity;
+  }
+
+  /**
+   * Thumbnail, or a default icon if the thumbnail has not been loaded, or has been evicted from the
+   * thumbnail cache. When the thumbnail arena is used, the thumbnail is copied out of the arena, so
+   * renderers should paint from the arena instead.
    *
    * @return Thumbnail.
    */
   public ImageIcon getThumbnail() {
+    if (ThumbnailArena.isEnabled()) {
+      final BufferedImage thumbnail = ThumbnailArena.getInstance().get(getThumbnailKey());
+      if (thumbnail == null) {
+        return DefaultImageIcon.DEFAULT_IMAGE_ICON;
+      }
+      return new ImageIcon(thumbnail);
+    }
+
+    final ImageIcon thumbnail = ThumbnailCache.getInstance().get(getThumbnailKey());
+    if (thumbnail == null) {
+      return DefaultImageIcon.DEFAULT_IMAGE_ICON;
+    }
     return thumbnail;
   }
 
+  /**
+   * Key of the thumbnail in the thumbnail cache. Thumbnails are keyed by file identity, so that
+   * they are kept when a file is renamed.
+   *
+   * @return Thumbnail key
+   */
+  public Object getThumbnailKey() {
+    if (identity == null) {
+      return file;
+    }
+    return identity;
+  }
+
   /**
    * {@inheritDoc}
    *
@@ -282,33 +491,137 @@ public final class FileItem implements Serializable {
    */
   @Override
   public int hashCode() {
-    int result;
-    result = file.hashCode();
-    result = 29 * result + creationInstant.hashCode();
-    return result;
+    return file.hashCode();
   }
 
-  private Instant loadCreationInstantFromFile() {
-    try {
-      final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
-      final FileTime creationTime = attributes.creationTime();
+  /**
+   * Whether image metadata, such as comment and creation date, has been loaded.
+   *
+   * @return True if metadata has been loaded
+   */
+  public boolean isMetadataLoaded() {
+    return metadataLoaded;
+  }
 
-      return creationTime.toInstant();
-    } catch (final IOException e) {
-      logger.log(Level.FINE, FileItem.this.toString(), e);
+  /**
+   * Whether the thumbnail has been loaded, and is still in the thumbnail cache or arena, or could
+   * not be created.
+   *
+   * @return True if the thumbnail does not need to be loaded
+   */
+  public boolean isThumbnailLoaded() {
+    if (thumbnailUnavailable) {
+      return true;
     }
-    return null;
+    if (ThumbnailArena.isEnabled()) {
+      return ThumbnailArena.getInstance().contains(getThumbnailKey());
+    }
+    return ThumbnailCache.getInstance().contains(getThumbnailKey());
   }
 
-  /** Loads image metadata, such as comment and thumbnail. */
-  public void loadMetadata() {
+  /**
+   * Checks whether the thumbnail is ready when it is needed, for example when its row comes into
+   * view, and counts a hit or miss in the thumbnail cache or arena. Not meant to be called on every
+   * paint.
+   *
+   * @return True if the thumbnail does not need to be loaded
+   */
+  public boolean lookupThumbnail() {
+    if (thumbnailUnavailable) {
+      return true;
+    }
+    if (ThumbnailArena.isEnabled()) {
+      return ThumbnailArena.getInstance().lookup(getThumbnailKey());
+    }
+    return ThumbnailCache.getInstance().lookup(getThumbnailKey());
+  }
+
+  /**
+   * Loads image metadata, such as comment and creation date, without creating a thumbnail. Does not
+   * need a display.
+   */
+  public synchronized void loadMetadata() {
     if (!metadataLoaded) {
-      final MetadataLoader loader = new MetadataLoader();
+      final MetadataLoader loader = new MetadataLoader(false);
       loader.run();
       metadataLoaded = true;
     }
   }
 
+  /**
+   * Loads image metadata, if needed, and the thumbnail into the thumbnail cache. The thumbnail is
+   * created again if it has been evicted.
+   */
+  public synchronized void loadThumbnail() {
+    if (!isThumbnailLoaded()) {
+      final MetadataLoader loader = new MetadataLoader(true);
+      loader.run();
+      metadataLoaded = true;
+    }
+  }
+
+  private static Path cachedDirectory(final MetadataCache metadataCache) {
+    if (metadataCache == null) {
+      return null;
+    }
+    return metadataCache.getDirectory();
+  }
+
+  private static BasicFileAttributes readAttributes(final Path file) {
+    try {
+      return Files.readAttributes(file, BasicFileAttributes.class);
+    } catch (final IOException e) {
+      logger.log(Level.FINE, file.toString(), e);
+    }
+    return null;
+  }
+
+  /**
+   * Creates a file item for this file under its new name, after it has been renamed. Metadata and
+   * the thumbnail that have already been loaded are kept, so nothing needs to be read again.
+   *
+   * @param renamedFile New name of the file
+   * @return File item for the renamed file
+   */
+  public FileItem renamedTo(final Path renamedFile) {
+    final FileIdentity renamedIdentity =
+        identity == null
+            ? null
+            : identity.renamed(file, renamedFile, cachedDirectory(metadataCache));
+    final FileItem renamed =
+        new FileItem(renamedFile, renamedIdentity, fileCreationInstant, metadataCache);
+
+    // The flag is set after the metadata fields are written, so read it first
+    if (metadataLoaded) {
+      renamed.creationInstant = creationInstant;
+      renamed.comment = comment;
+      renamed.metadataLoaded = true;
+    }
+    renamed.thumbnailUnavailable = thumbnailUnavailable;
+
+    if (renamedIdentity != identity) {
+      // Cached metadata and thumbnails are keyed by the file path on this file system
+      final MetadataCache.Entry cachedMetadata =
+          metadataCache == null ? null : metadataCache.get(identity);
+      if (cachedMetadata != null) {
+        metadataCache.put(
+            renamedIdentity, cachedMetadata.getInstant(), cachedMetadata.getComment());
+      }
+      if (ThumbnailArena.isEnabled()) {
+        final BufferedImage thumbnail = ThumbnailArena.getInstance().get(getThumbnailKey());
+        if (thumbnail != null) {
+          ThumbnailArena.getInstance().put(renamed.getThumbnailKey(), thumbnail);
+        }
+      } else {
+        final ImageIcon thumbnail = ThumbnailCache.getInstance().get(getThumbnailKey());
+        if (thumbnail != null) {
+          ThumbnailCache.getInstance().put(renamed.getThumbnailKey(), thumbnail);
+        }
+      }
+    }
+    return renamed;
+  }
+
   public String toHtml() {
     final String dateString = dateTimeFormatter.format(creationInstant);
     final String toolTip =
@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2004-2026, Sualeh Fatehi <sualeh@hotmail.com>
+ * This work is licensed under the Creative Commons Attribution-Noncommercial-No Derivative Works 3.0 License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/3.0/
+ * or send a letter to Creative Commons, 543 Howard Street, 5th Floor, San Francisco, California, 94105, USA.
+ */
+package photosrenamer.photosrenamer;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for moving a file to its new name.
+ *
+ * @author Sualeh Fatehi
+ */
+@Name("photosrenamer.FileMove")
+@Label("File Move")
+@Category({"Photos Renamer", "Renaming"})
+@Description("Moving a file to its new name, or to a temporary name, while renaming")
+@StackTrace(false)
+final class FileMoveEvent extends Event {
+
+  @Label("Source")
+  String source;
+
+  @Label("Target")
+  String target;
+
+  @Label("Succeeded")
+  boolean succeeded;
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2004-2026, Sualeh Fatehi <sualeh@hotmail.com>
+ * This work is licensed under the Creative Commons Attribution-Noncommercial-No Derivative Works 3.0 License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/3.0/
+ * or send a letter to Creative Commons, 543 Howard Street, 5th Floor, San Francisco, California, 94105, USA.
+ */
+package photosrenamer.photosrenamer;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sorts file items on sort keys that are computed once for each item, instead of on every
+ * comparison. File names are split into chunks up front, and each distinct chunk is given a rank in
+ * alphanum order, so names are compared as arrays of ranks. Dates are taken once, so dates that are
+ * loaded in the background while sorting do not change the order. Large lists are sorted in
+ * parallel. Sorting is stable, and later sort orders break ties in earlier ones.
+ *
+ * @author Sualeh Fatehi
+ */
+public final class FileSorter {
+
+  /** Sort keys of a file item. */
+  private static final class SortKey {
+
+    private final FileItem fileItem;
+    private final boolean hasInstant;
+    private final long epochSecond;
+    private final int nano;
+    private int[] chunkRanks;
+
+    SortKey(final FileItem fileItem, final boolean byDate) {
+      this.fileItem = fileItem;
+
+      final Instant instant = byDate ? fileItem.getCreationInstant() : null;
+      hasInstant = instant != null;
+      epochSecond = hasInstant ? instant.getEpochSecond() : 0;
+      nano = hasInstant ? instant.getNano() : 0;
+    }
+  }
+
+  /**
+   * Order of chunks, as the alphanum comparator compares them. This is a total order: chunks that
+   * differ are never equal, and a chunk of digits compares with a chunk of other characters on the
+   * first character alone.
+   */
+  private static final Comparator<String> CHUNK_ORDER =
+      (chunk1, chunk2) ->
+          AlphanumComparator.compareChunks(
+              chunk1, 0, chunk1.length(), chunk2, 0, chunk2.length());
+
+  private static int compareDates(final SortKey key1, final SortKey key2) {
+    // Files without a date go last
+    if (key1.hasInstant != key2.hasInstant) {
+      return key1.hasInstant ? -1 : 1;
+    }
+    final int result = Long.compare(key1.epochSecond, key2.epochSecond);
+    if (result != 0) {
+      return result;
+    }
+    return Integer.compare(key1.nano, key2.nano);
+  }
+
+  /**
+   * Compares names in the same way as the alphanum comparator, chunk by chunk. When all the chunks
+   * of one name match the start of the other, the shorter name goes first.
+   */
+  private static int compareNames(final SortKey key1, final SortKey key2) {
+    final int[] chunkRanks1 = key1.chunkRanks;
+    final int[] chunkRanks2 = key2.chunkRanks;
+    final int chunkCount = Math.min(chunkRanks1.length, chunkRanks2.length);
+    for (int i = 0; i < chunkCount; i++) {
+      if (chunkRanks1[i] != chunkRanks2[i]) {
+        return Integer.compare(chunkRanks1[i], chunkRanks2[i]);
+      }
+    }
+    return Integer.compare(chunkRanks1.length, chunkRanks2.length);
+  }
+
+  /** Splits each name into chunks, and replaces each chunk with its rank among all the chunks. */
+  private static void rankChunks(final SortKey[] sortKeys) {
+    final Map<String, Integer> chunkIds = new HashMap<>();
+    final List<String> chunks = new ArrayList<>();
+    String previousName = "";
+    int[] previousChunkEnds = new int[0];
+    int[] previousChunkIds = new int[0];
+    for (final SortKey sortKey : sortKeys) {
+      final String name = sortKey.fileItem.getFile().toString();
+      final int[] chunkEnds = AlphanumComparator.chunkEnds(name);
+      final int[] chunkRanks = new int[chunkEnds.length];
+      for (int i = 0; i < chunkEnds.length; i++) {
+        final int start = i == 0 ? 0 : chunkEnds[i - 1];
+        final int length = chunkEnds[i] - start;
+        // Files in the same directory share the leading chunks, so try the previous name first
+        if (i < previousChunkEnds.length
+            && previousChunkEnds[i] == chunkEnds[i]
+            && (i == 0 || previousChunkEnds[i - 1] == start)
+            && name.regionMatches(start, previousName, start, length)) {
+          chunkRanks[i] = previousChunkIds[i];
+          continue;
+        }
+
+        final String chunk = name.substring(start, chunkEnds[i]);
+        Integer chunkId = chunkIds.get(chunk);
+        if (chunkId == null) {
+          chunkId = chunks.size();
+          chunkIds.put(chunk, chunkId);
+          chunks.add(chunk);
+        }
+        chunkRanks[i] = chunkId;
+      }
+      sortKey.chunkRanks = chunkRanks;
+
+      previousName = name;
+      previousChunkEnds = chunkEnds;
+      previousChunkIds = chunkRanks;
+    }
+
+    final Integer[] sortedIds = new Integer[chunks.size()];
+    for (int i = 0; i < sortedIds.length; i++) {
+      sortedIds[i] = i;
+    }
+    Arrays.sort(sortedIds, (id1, id2) -> CHUNK_ORDER.compare(chunks.get(id1), chunks.get(id2)));
+    final int[] ranks = new int[sortedIds.length];
+    for (int rank = 0; rank < sortedIds.length; rank++) {
+      ranks[sortedIds[rank]] = rank;
+    }
+
+    for (final SortKey sortKey : sortKeys) {
+      final int[] chunkRanks = sortKey.chunkRanks;
+      for (int i = 0; i < chunkRanks.length; i++) {
+        chunkRanks[i] = ranks[chunkRanks[i]];
+      }
+    }
+  }
+
+  /**
+   * Sorts file items in place.
+   *
+   * @param fileItems File items to sort
+   * @param sortOrders Sort orders, each breaking ties in the ones before it
+   */
+  public static void sort(final List<FileItem> fileItems, final FileComparator... sortOrders) {
+    if (fileItems.size() < 2 || sortOrders.length == 0) {
+      return;
+    }
+
+    final List<FileComparator> orders = Arrays.asList(sortOrders);
+    final boolean byDate = orders.contains(FileComparator.BY_DATE);
+    final SortKey[] sortKeys = new SortKey[fileItems.size()];
+    for (int i = 0; i < sortKeys.length; i++) {
+      sortKeys[i] = new SortKey(fileItems.get(i), byDate);
+    }
+    if (orders.contains(FileComparator.BY_NAME)) {
+      rankChunks(sortKeys);
+    }
+
+    Comparator<SortKey> comparator = null;
+    for (final FileComparator sortOrder : sortOrders) {
+      final Comparator<SortKey> next =
+          switch (sortOrder) {
+            case BY_DATE -> FileSorter::compareDates;
+            case BY_NAME -> FileSorter::compareNames;
+          };
+      comparator = comparator == null ? next : comparator.thenComparing(next);
+    }
+
+    // Sorts in parallel only for large arrays
+    Arrays.parallelSort(sortKeys, comparator);
+
+    for (int i = 0; i < sortKeys.length; i++) {
+      fileItems.set(i, sortKeys[i].fileItem);
+    }
+  }
+
+  private FileSorter() {}
+}
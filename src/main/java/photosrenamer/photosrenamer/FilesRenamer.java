@@ -7,17 +7,13 @@
 package photosrenamer.photosrenamer;
 
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.UUID;
-import java.util.concurrent.TimeUnit;
-import java.util.logging.FileHandler;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.logging.SimpleFormatter;
 import java.util.regex.Pattern;
 
 /**
@@ -30,114 +26,142 @@ public final class FilesRenamer {
 
   private static final Logger logger = Logger.getGlobal();
 
-  private static final boolean DEBUG_FORCE_EXCEPTION = false;
-  private static final boolean DEBUG_FORCE_SLOWDOWN = false;
+  /**
+   * Number of files to move at the same time, which can be set with the
+   * "photosrenamer.rename.threads" system property. Defaults to four, since moving files on network
+   * file systems is mostly waiting for the server.
+   *
+   * @return Number of files to move at the same time
+   */
+  public static int defaultParallelism() {
+    return Math.max(1, Integer.getInteger("photosrenamer.rename.threads", 4));
+  }
 
+  private final Path directory;
   private final List<Path> files;
   private final String fileStem;
-
+  private final int parallelism;
+
+  /**
+   * Creates a renamer for a list of files, which keeps its rename journal in the directory that
+   * contains all the files.
+   *
+   * @param files Files to rename, in order
+   * @param fileStem Alphanumeric file stem
+   */
   public FilesRenamer(final List<Path> files, final String fileStem) {
+    this(commonDirectory(files), files, fileStem, defaultParallelism());
+  }
+
+  /**
+   * Creates a renamer for a list of files in a directory, or its subdirectories.
+   *
+   * @param directory Directory that was opened, in which the rename journal is kept, and looked
+   *     for when recovering an unfinished rename
+   * @param files Files to rename, in order
+   * @param fileStem Alphanumeric file stem
+   */
+  public FilesRenamer(final Path directory, final List<Path> files, final String fileStem) {
+    this(directory, files, fileStem, defaultParallelism());
+  }
+
+  /**
+   * Creates a renamer for a list of files in a directory, or its subdirectories.
+   *
+   * @param directory Directory that was opened, in which the rename journal is kept, and looked
+   *     for when recovering an unfinished rename
+   * @param files Files to rename, in order
+   * @param fileStem Alphanumeric file stem
+   * @param parallelism Number of files to move at the same time
+   */
+  public FilesRenamer(
+      final Path directory, final List<Path> files, final String fileStem, final int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("At least one file needs to be moved at a time");
+    }
+    this.parallelism = parallelism;
+
     if (files == null || files.isEmpty()) {
       throw new IllegalArgumentException("No files provided");
     }
     this.files = files;
 
+    if (directory == null) {
+      throw new IllegalArgumentException("No directory provided");
+    }
+    this.directory = directory.toAbsolutePath().normalize();
+    for (final Path file : files) {
+      if (!file.toAbsolutePath().normalize().startsWith(this.directory)) {
+        throw new IllegalArgumentException("%s is not in %s".formatted(file, this.directory));
+      }
+    }
+
     if (fileStem == null || !Pattern.matches("^[a-zA-Z0-9_.]+$", fileStem)) {
       throw new IllegalArgumentException("No alphanumeric filestem provided");
     }
     this.fileStem = fileStem;
   }
 
-  private void closeFileLogger(final FileHandler handler) {
-    handler.close();
-    logger.removeHandler(handler);
+  /**
+   * Directory in which the rename journal is kept.
+   *
+   * @return Directory
+   */
+  public Path getDirectory() {
+    return directory;
   }
 
   public String getFileStem() {
     return fileStem;
   }
 
-  @SafeVarargs
-  private final void logFiles(final List<Path>... files) {
-    final StringBuilder buffer = new StringBuilder();
-    buffer.append("\n");
-    for (int i = 0; i < files[0].size(); i++) {
-      for (int j = 0; j < files.length; j++) {
-        if (i >= files[j].size()) {
-          continue;
-        }
-
-        if (j > 0) {
-          buffer.append(" -> ");
-        }
-        buffer.append("%s".formatted(files[j].get(i).toFile().getName()));
-      }
-      buffer.append("\n");
+  /**
+   * Renames the files, moving only the files that do not already have the right name. Moves that
+   * do not depend on each other are run at the same time, and if any move fails, no further moves
+   * are started, and every file keeps either its old name, its new name, or a temporary name. The
+   * planned moves are written to a rename journal first, so that an unfinished rename can be
+   * resumed or rolled back.
+   *
+   * @return Old and new names of the files that were moved, so that file items can follow their
+   *     files without being loaded again
+   * @throws IllegalArgumentException If a new name is taken by a file that is not being renamed
+   * @throws IllegalStateException If an earlier rename in the directory is unfinished
+   */
+  public Map<Path, Path> rename() {
+    if (RenameJournal.exists(directory)) {
+      throw new IllegalStateException(
+          "An unfinished rename in %s needs to be resumed or rolled back first"
+              .formatted(directory));
     }
-    logger.log(Level.INFO, buffer.toString());
-  }
 
-  private List<Path> makeRenamePass(final List<Path> files, final String fileStem) {
-    final List<Path> renamedFiles = new ArrayList<>();
-    int i = 0;
-    for (final Path file : files) {
-      try {
-        if (DEBUG_FORCE_EXCEPTION && i == 1) {
-          throw new RuntimeException("Simulated exception");
-        }
-        if (DEBUG_FORCE_SLOWDOWN) {
-          TimeUnit.SECONDS.sleep(2);
-        }
-
-        final String originalFilename = file.toString();
-        final String extension =
-            originalFilename.substring(originalFilename.lastIndexOf('.') + 1).toLowerCase();
-
-        i = i + 1;
-        final Path renamedFile =
-            file.resolveSibling("%s_%04d.%s".formatted(fileStem, i, extension));
-
-        Files.move(file, renamedFile, StandardCopyOption.ATOMIC_MOVE);
-        renamedFiles.add(renamedFile);
-      } catch (final Exception e) {
-        final FileHandler handler = openFileLogger();
-
-        logger.log(Level.SEVERE, "Error while renaming %s\n".formatted(file.toString()));
-
-        logger.log(
-            Level.INFO,
-            "Final file stem: \"%s\"; Current pass file stem: \"%s\"\n"
-                .formatted(this.fileStem, fileStem));
-        logFiles(files);
-        logFiles(files, renamedFiles);
-        logger.log(Level.SEVERE, e.getMessage(), e);
-
-        closeFileLogger(handler);
-
-        throw new RuntimeException(e);
+    try {
+      final RenamePlan plan = RenamePlan.plan(files, fileStem, parallelism);
+      logger.log(Level.INFO, "Renaming %s".formatted(plan));
+      if (plan.getMoveCount() == 0) {
+        return Map.of();
       }
-    }
-    return renamedFiles;
-  }
 
-  private FileHandler openFileLogger() {
-    try {
-      final String logFile = files.get(0).getParent().resolve("photos_renamer.log").toString();
-      final FileHandler handler = new FileHandler(logFile, true);
-      handler.setFormatter(new SimpleFormatter());
-      logger.addHandler(handler);
-
-      return handler;
-    } catch (SecurityException | IOException e) {
-      logger.log(Level.SEVERE, e.getMessage(), e);
-      throw new RuntimeException(e);
+      final RenameJournal journal = RenameJournal.create(directory, plan);
+      new RenameExecutor(directory, parallelism, "File stem: \"%s\"".formatted(fileStem))
+          .run(plan, journal);
+      return Collections.unmodifiableMap(plan.getRenames());
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
     }
   }
 
-  public void rename() {
-    final String pass1FileStem = UUID.randomUUID().toString();
-
-    final List<Path> pass1Files = makeRenamePass(files, pass1FileStem);
-    makeRenamePass(pass1Files, fileStem);
+  /** Finds the directory that contains all the files, for the journal and the error log. */
+  private static Path commonDirectory(final List<Path> files) {
+    if (files == null || files.isEmpty()) {
+      throw new IllegalArgumentException("No files provided");
+    }
+    Path directory = files.get(0).toAbsolutePath().normalize().getParent();
+    for (final Path file : files) {
+      final Path absoluteFile = file.toAbsolutePath().normalize();
+      while (!absoluteFile.startsWith(directory)) {
+        directory = directory.getParent();
+      }
+    }
+    return directory;
   }
 }
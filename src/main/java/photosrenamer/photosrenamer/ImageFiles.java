@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2004-2026, Sualeh Fatehi <sualeh@hotmail.com>
+ * This work is licensed under the Creative Commons Attribution-Noncommercial-No Derivative Works 3.0 License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/3.0/
+ * or send a letter to Creative Commons, 543 Howard Street, 5th Floor, San Francisco, California, 94105, USA.
+ */
+package photosrenamer.photosrenamer;
+
+import java.io.IOException;
+import java.io.Serial;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Lists the image files in a directory, or in a directory tree. Directory trees are walked in
+ * parallel, one task per subdirectory, and the file attributes read during the walk are used to
+ * create the file items.
+ *
+ * @author Sualeh Fatehi
+ */
+public final class ImageFiles {
+
+  /** Pattern for the names of image files. */
+  public static final String IMAGE_FILES_GLOB = "*.{jpeg,jpg,gif,tiff,tif,png}";
+
+  private static final Logger logger = Logger.getGlobal();
+
+  private static final PathMatcher imageFilesMatcher =
+      FileSystems.getDefault().getPathMatcher("glob:" + IMAGE_FILES_GLOB);
+
+  /**
+   * Number of threads for walking directory trees, which can be set with the
+   * "photosrenamer.scan.threads" system property. Defaults to the number of processors, and at
+   * least two, since walking is mostly waiting on the file system.
+   *
+   * @return Number of threads
+   */
+  public static int defaultThreadCount() {
+    final int processors = Runtime.getRuntime().availableProcessors();
+    return Math.max(1, Integer.getInteger("photosrenamer.scan.threads", Math.max(2, processors)));
+  }
+
+  /**
+   * Whether a file has the name of an image file. The file itself is not checked.
+   *
+   * @param file File to check
+   * @return True if the file name matches the pattern for image files
+   */
+  public static boolean isImageFile(final Path file) {
+    final Path fileName = file.getFileName();
+    return fileName != null && imageFilesMatcher.matches(fileName);
+  }
+
+  /**
+   * Lists the image files in a directory, as file items. Subdirectories are not included.
+   *
+   * @param directory Directory to list
+   * @param metadataCache Metadata cache for the file items, or null
+   * @return File items, in directory order
+   * @throws IOException On an exception listing the directory
+   */
+  public static List<FileItem> list(final Path directory, final MetadataCache metadataCache)
+      throws IOException {
+    return list(directory, false, metadataCache);
+  }
+
+  /**
+   * Lists the image files in a directory, and optionally in all of its subdirectories, as file
+   * items.
+   *
+   * @param directory Directory to list
+   * @param recursive Whether to include subdirectories
+   * @param metadataCache Metadata cache for the file items, or null
+   * @return File items, in no particular order if subdirectories are included
+   * @throws IOException On an exception listing the directory
+   */
+  public static List<FileItem> list(
+      final Path directory, final boolean recursive, final MetadataCache metadataCache)
+      throws IOException {
+    final List<FileItem> fileItems = Collections.synchronizedList(new ArrayList<>());
+    forEach(directory, recursive, metadataCache, fileItems::add);
+    return new ArrayList<>(fileItems);
+  }
+
+  /**
+   * Creates file items for the image files in a directory, and passes each one on as soon as it is
+   * created. Subdirectories are not included.
+   *
+   * @param directory Directory to list
+   * @param metadataCache Metadata cache for the file items, or null
+   * @param consumer Receives file items, in directory order
+   * @throws IOException On an exception listing the directory
+   */
+  public static void forEach(
+      final Path directory, final MetadataCache metadataCache, final Consumer<FileItem> consumer)
+      throws IOException {
+    forEach(directory, false, metadataCache, consumer);
+  }
+
+  /**
+   * Creates file items for the image files in a directory, and optionally in all of its
+   * subdirectories, and passes each one on as soon as it is created. Subdirectories are walked in
+   * parallel, so the consumer must be thread-safe if subdirectories are included. An unchecked
+   * exception thrown by the consumer stops the walk, and is rethrown.
+   *
+   * @param directory Directory to list
+   * @param recursive Whether to include subdirectories
+   * @param metadataCache Metadata cache for the file items, or null
+   * @param consumer Receives file items
+   * @throws IOException On an exception listing the top-level directory
+   */
+  public static void forEach(
+      final Path directory,
+      final boolean recursive,
+      final MetadataCache metadataCache,
+      final Consumer<FileItem> consumer)
+      throws IOException {
+    final DirectoryListingEvent event = new DirectoryListingEvent();
+    final AtomicInteger fileCount = new AtomicInteger();
+    final Consumer<FileItem> countingConsumer =
+        fileItem -> {
+          fileCount.incrementAndGet();
+          consumer.accept(fileItem);
+        };
+
+    event.begin();
+    try {
+      walk(directory, recursive, metadataCache, countingConsumer);
+    } finally {
+      event.end();
+      if (event.shouldCommit()) {
+        event.directory = directory.toString();
+        event.recursive = recursive;
+        event.fileCount = fileCount.get();
+        event.commit();
+      }
+      Metrics.getInstance().recordFilesScanned(fileCount.get());
+    }
+  }
+
+  private static void walk(
+      final Path directory,
+      final boolean recursive,
+      final MetadataCache metadataCache,
+      final Consumer<FileItem> consumer)
+      throws IOException {
+    if (!recursive) {
+      walkDirectory(directory, metadataCache, consumer, null);
+      return;
+    }
+
+    final ForkJoinPool pool = newPool();
+    try {
+      pool.invoke(new DirectoryWalk(directory, metadataCache, consumer, true));
+    } catch (final UncheckedIOException e) {
+      throw e.getCause();
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  private static ForkJoinPool newPool() {
+    final AtomicInteger threadCount = new AtomicInteger();
+    return new ForkJoinPool(
+        defaultThreadCount(),
+        pool -> {
+          final ForkJoinWorkerThread thread =
+              ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+          thread.setName("photosrenamer-scan-" + threadCount.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        },
+        null,
+        false);
+  }
+
+  /**
+   * Walks a single directory, creating file items from the attributes read during the walk.
+   * Subdirectories are passed on, if a consumer for them is given.
+   */
+  private static void walkDirectory(
+      final Path directory,
+      final MetadataCache metadataCache,
+      final Consumer<FileItem> consumer,
+      final Consumer<Path> subdirectories)
+      throws IOException {
+    Files.walkFileTree(
+        directory,
+        Collections.emptySet(),
+        1,
+        new SimpleFileVisitor<>() {
+
+          @Override
+          public FileVisitResult visitFile(final Path file, final BasicFileAttributes attributes) {
+            if (attributes.isDirectory()) {
+              if (subdirectories != null) {
+                subdirectories.accept(file);
+              }
+            } else if (imageFilesMatcher.matches(file.getFileName())) {
+              if (attributes.isSymbolicLink()) {
+                // Read the attributes of the linked file instead
+                consumer.accept(new FileItem(file, metadataCache));
+              } else if (attributes.isRegularFile()) {
+                consumer.accept(new FileItem(file, attributes, metadataCache));
+              }
+            }
+            return FileVisitResult.CONTINUE;
+          }
+
+          @Override
+          public FileVisitResult visitFileFailed(final Path file, final IOException e)
+              throws IOException {
+            if (file.equals(directory)) {
+              throw e;
+            }
+            logger.log(Level.FINE, file.toString(), e);
+            return FileVisitResult.CONTINUE;
+          }
+        });
+  }
+
+  /** Walks a directory, and forks a walk for each of its subdirectories. */
+  private static final class DirectoryWalk extends RecursiveAction {
+
+    @Serial private static final long serialVersionUID = 5312845719720364018L;
+
+    private final Path directory;
+    private final transient MetadataCache metadataCache;
+    private final transient Consumer<FileItem> consumer;
+    private final boolean topLevel;
+
+    DirectoryWalk(
+        final Path directory,
+        final MetadataCache metadataCache,
+        final Consumer<FileItem> consumer,
+        final boolean topLevel) {
+      this.directory = directory;
+      this.metadataCache = metadataCache;
+      this.consumer = consumer;
+      this.topLevel = topLevel;
+    }
+
+    @Override
+    protected void compute() {
+      final List<DirectoryWalk> walks = new ArrayList<>();
+      try {
+        walkDirectory(
+            directory,
+            metadataCache,
+            consumer,
+            subdirectory -> {
+              // Symbolic links are not followed, which also avoids cycles
+              final DirectoryWalk walk =
+                  new DirectoryWalk(subdirectory, metadataCache, consumer, false);
+              walk.fork();
+              walks.add(walk);
+            });
+      } catch (final IOException e) {
+        if (topLevel) {
+          throw new UncheckedIOException(e);
+        }
+        logger.log(Level.FINE, directory.toString(), e);
+      }
+
+      for (final DirectoryWalk walk : walks) {
+        walk.join();
+      }
+    }
+  }
+
+  private ImageFiles() {}
+}
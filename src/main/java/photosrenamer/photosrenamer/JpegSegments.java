@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2004-2026, Sualeh Fatehi <sualeh@hotmail.com>
+ * This work is licensed under the Creative Commons Attribution-Noncommercial-No Derivative Works 3.0 License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/3.0/
+ * or send a letter to Creative Commons, 543 Howard Street, 5th Floor, San Francisco, California, 94105, USA.
+ */
+package photosrenamer.photosrenamer;
+
+import com.drew.imaging.jpeg.JpegProcessingException;
+import com.drew.imaging.jpeg.JpegSegmentData;
+import com.drew.imaging.jpeg.JpegSegmentType;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+
+/**
+ * Reads selected segments from the header of a JPEG file. Segments that are not needed are skipped
+ * by moving the file position, without reading them, and reading stops at the start of the image
+ * data, so only a small part of the file is read.
+ *
+ * @author Sualeh Fatehi
+ */
+final class JpegSegments {
+
+  private static final int BUFFER_SIZE = 4096;
+
+  private static final int MARKER_START = 0xFF;
+  private static final int MARKER_SOI = 0xD8;
+  private static final int MARKER_EOI = 0xD9;
+  private static final int MARKER_SOS = 0xDA;
+
+  /**
+   * Reads segments of the given types from a JPEG file.
+   *
+   * @param file JPEG file
+   * @param segmentTypes Types of segments to read
+   * @return Segments that were read
+   * @throws JpegProcessingException On a malformed JPEG file
+   * @throws IOException On an exception reading the file
+   */
+  static JpegSegmentData read(final Path file, final Set<JpegSegmentType> segmentTypes)
+      throws JpegProcessingException, IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      return new JpegSegments(channel).read(segmentTypes);
+    }
+  }
+
+  /**
+   * Total size of the segments that were read.
+   *
+   * @param segments Segments that were read
+   * @return Size in bytes
+   */
+  static long size(final JpegSegmentData segments) {
+    long size = 0;
+    for (final JpegSegmentType segmentType : segments.getSegmentTypes()) {
+      for (final byte[] segment : segments.getSegments(segmentType)) {
+        size = size + segment.length;
+      }
+    }
+    return size;
+  }
+
+  private final FileChannel channel;
+  private final ByteBuffer buffer;
+
+  private JpegSegments(final FileChannel channel) {
+    this.channel = channel;
+    buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    buffer.flip();
+  }
+
+  private JpegSegmentData read(final Set<JpegSegmentType> segmentTypes)
+      throws JpegProcessingException, IOException {
+    if (readUInt8() != MARKER_START || readUInt8() != MARKER_SOI) {
+      throw new JpegProcessingException("JPEG data is expected to begin with 0xFFD8");
+    }
+
+    final JpegSegmentData segments = new JpegSegmentData();
+    while (true) {
+      final int segmentIdentifier = readUInt8();
+      if (segmentIdentifier != MARKER_START) {
+        throw new JpegProcessingException(
+            "Expected JPEG segment start identifier 0xFF, not 0x%X".formatted(segmentIdentifier));
+      }
+      int marker = readUInt8();
+      while (marker == MARKER_START) {
+        // Fill bytes before the marker
+        marker = readUInt8();
+      }
+      if (marker == MARKER_SOS || marker == MARKER_EOI) {
+        // The image data follows, which never contains metadata
+        return segments;
+      }
+
+      final int length = readUInt16() - 2;
+      if (length < 0) {
+        throw new JpegProcessingException("JPEG segment size would be less than zero");
+      }
+
+      final JpegSegmentType segmentType = JpegSegmentType.fromByte((byte) marker);
+      if (segmentType != null && segmentTypes.contains(segmentType)) {
+        final byte[] segment = new byte[length];
+        readFully(segment);
+        segments.addSegment((byte) marker, segment);
+      } else {
+        skip(length);
+      }
+    }
+  }
+
+  private boolean fill(final int count) throws IOException {
+    if (buffer.remaining() >= count) {
+      return true;
+    }
+    buffer.compact();
+    try {
+      while (buffer.position() < count) {
+        if (channel.read(buffer) < 0) {
+          return false;
+        }
+      }
+    } finally {
+      buffer.flip();
+    }
+    return true;
+  }
+
+  private void readFully(final byte[] bytes) throws JpegProcessingException, IOException {
+    final int buffered = Math.min(buffer.remaining(), bytes.length);
+    buffer.get(bytes, 0, buffered);
+
+    // Read the rest directly, without copying through the buffer
+    final ByteBuffer target = ByteBuffer.wrap(bytes, buffered, bytes.length - buffered);
+    while (target.hasRemaining()) {
+      if (channel.read(target) < 0) {
+        throw new JpegProcessingException("Unexpected end of JPEG data");
+      }
+    }
+  }
+
+  private int readUInt16() throws JpegProcessingException, IOException {
+    if (!fill(2)) {
+      throw new JpegProcessingException("Unexpected end of JPEG data");
+    }
+    return buffer.getShort() & 0xFFFF;
+  }
+
+  private int readUInt8() throws JpegProcessingException, IOException {
+    if (!fill(1)) {
+      throw new JpegProcessingException("Unexpected end of JPEG data");
+    }
+    return buffer.get() & 0xFF;
+  }
+
+  private void skip(final int count) throws IOException {
+    if (count <= buffer.remaining()) {
+      buffer.position(buffer.position() + count);
+      return;
+    }
+
+    final int unbuffered = count - buffer.remaining();
+    buffer.position(buffer.limit());
+    channel.position(channel.position() + unbuffered);
+  }
+}
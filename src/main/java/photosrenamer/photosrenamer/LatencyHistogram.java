@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2004-2026, Sualeh Fatehi <sualeh@hotmail.com>
+ * This work is licensed under the Creative Commons Attribution-Noncommercial-No Derivative Works 3.0 License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/3.0/
+ * or send a letter to Creative Commons, 543 Howard Street, 5th Floor, San Francisco, California, 94105, USA.
+ */
+package photosrenamer.photosrenamer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of durations, in constant memory. Buckets grow exponentially, with eight buckets for
+ * each power of two, so percentiles are accurate to within about an eighth. Durations can be
+ * recorded from any number of threads, without locking.
+ *
+ * @author Sualeh Fatehi
+ */
+public final class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  static int bucketIndex(final long nanos) {
+    if (nanos < SUB_BUCKETS) {
+      return (int) Math.max(0, nanos);
+    }
+    final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(nanos);
+    final int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  /** Largest duration that falls in a bucket. */
+  static long bucketUpperBound(final int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    final int shift = index / SUB_BUCKETS - 1;
+    final long lowerBound = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+    return lowerBound + (1L << shift) - 1;
+  }
+
+  private final AtomicLongArray buckets;
+  private final AtomicLong max;
+
+  /** Creates an empty histogram. */
+  public LatencyHistogram() {
+    buckets = new AtomicLongArray(BUCKET_COUNT);
+    max = new AtomicLong();
+  }
+
+  /**
+   * Number of durations recorded.
+   *
+   * @return Count
+   */
+  public long getCount() {
+    long count = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      count = count + buckets.get(i);
+    }
+    return count;
+  }
+
+  /**
+   * Longest duration recorded.
+   *
+   * @return Duration in nanoseconds
+   */
+  public long getMax() {
+    return max.get();
+  }
+
+  /**
+   * Duration that the given percentage of recorded durations are no longer than.
+   *
+   * @param percentile Percentage, such as 50 for the median
+   * @return Duration in nanoseconds, or 0 if nothing has been recorded
+   */
+  public long getPercentile(final double percentile) {
+    final long[] counts = new long[BUCKET_COUNT];
+    long count = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      counts[i] = buckets.get(i);
+      count = count + counts[i];
+    }
+    if (count == 0) {
+      return 0;
+    }
+
+    final long rank = Math.max(1, (long) Math.ceil(count * Math.min(100, percentile) / 100));
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen = seen + counts[i];
+      if (seen >= rank) {
+        return Math.min(bucketUpperBound(i), max.get());
+      }
+    }
+    return max.get();
+  }
+
+  /**
+   * Duration that the given percentage of recorded durations are no longer than, in milliseconds.
+   *
+   * @param percentile Percentage, such as 50 for the median
+   * @return Duration in milliseconds, or 0 if nothing has been recorded
+   */
+  public double getPercentileMillis(final double percentile) {
+    return getPercentile(percentile) / (double) TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  /**
+   * Records a duration.
+   *
+   * @param nanos Duration in nanoseconds
+   */
+  public void record(final long nanos) {
+    buckets.incrementAndGet(bucketIndex(nanos));
+    max.accumulateAndGet(nanos, Math::max);
+  }
+
+  /** Removes all recorded durations. */
+  public void reset() {
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      buckets.set(i, 0);
+    }
+    max.set(0);
+  }
+
+  @Override
+  public String toString() {
+    return "%d recorded; p50 %.1f ms, p99 %.1f ms, max %.1f ms"
+        .formatted(
+            getCount(),
+            getPercentileMillis(50),
+            getPercentileMillis(99),
+            max.get() / (double) TimeUnit.MILLISECONDS.toNanos(1));
+  }
+}
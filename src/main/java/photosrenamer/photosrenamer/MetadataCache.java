@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) 2004-2026, Sualeh Fatehi <sualeh@hotmail.com>
+ * This work is licensed under the Creative Commons Attribution-Noncommercial-No Derivative Works 3.0 License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/3.0/
+ * or send a letter to Creative Commons, 543 Howard Street, 5th Floor, San Francisco, California, 94105, USA.
+ */
+package photosrenamer.photosrenamer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Persistent store of image metadata (creation instant and caption) for the files in one
+ * directory, so that EXIF and IPTC metadata does not need to be parsed again every time the
+ * directory is opened. Entries are keyed by {@link FileIdentity}, so they survive renames, and are
+ * ignored as soon as a file is modified. The store is kept in a per-user cache directory, and is
+ * discarded if it cannot be read.
+ *
+ * @author Sualeh Fatehi
+ */
+public final class MetadataCache {
+
+  /** Cached metadata for a single file. */
+  public static final class Entry {
+
+    private final Instant instant;
+    private final String comment;
+
+    Entry(final Instant instant, final String comment) {
+      this.instant = instant;
+      this.comment = comment == null ? "" : comment;
+    }
+
+    /**
+     * Gets the image caption.
+     *
+     * @return Caption, or an empty string.
+     */
+    public String getComment() {
+      return comment;
+    }
+
+    /**
+     * Gets the earliest creation instant found in the image metadata.
+     *
+     * @return Creation instant, or null if the metadata has none.
+     */
+    public Instant getInstant() {
+      return instant;
+    }
+  }
+
+  private static final Logger logger = Logger.getGlobal();
+
+  private static final int MAGIC = 0x50524d43; // "PRMC"
+  private static final int FORMAT_VERSION = 1;
+
+  /**
+   * Gets the per-user directory in which caches are stored. This can be overridden with the
+   * "photosrenamer.cache.dir" system property.
+   *
+   * @return Cache directory
+   */
+  public static Path getCacheDirectory() {
+    final String cacheDirectory = System.getProperty("photosrenamer.cache.dir");
+    if (cacheDirectory != null && !cacheDirectory.isBlank()) {
+      return Path.of(cacheDirectory);
+    }
+    return Path.of(System.getProperty("user.home"), ".photosrenamer", "cache");
+  }
+
+  /**
+   * Opens the metadata cache for a directory, loading any previously saved entries.
+   *
+   * @param directory Directory of images
+   * @return Metadata cache
+   */
+  public static MetadataCache forDirectory(final Path directory) {
+    if (directory == null) {
+      throw new IllegalArgumentException("No directory provided");
+    }
+    final Path absoluteDirectory = directory.toAbsolutePath().normalize();
+    final String name =
+        UUID.nameUUIDFromBytes(absoluteDirectory.toString().getBytes(StandardCharsets.UTF_8))
+            .toString();
+    final Path cacheFile = getCacheDirectory().resolve("metadata-" + name + ".bin");
+
+    final MetadataCache metadataCache = new MetadataCache(absoluteDirectory, cacheFile);
+    metadataCache.load();
+    return metadataCache;
+  }
+
+  private final Path directory;
+  private final Path cacheFile;
+  private final Map<FileIdentity, Entry> entries;
+  private volatile boolean dirty;
+
+  private MetadataCache(final Path directory, final Path cacheFile) {
+    this.directory = directory;
+    this.cacheFile = cacheFile;
+    entries = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Looks up cached metadata for a file.
+   *
+   * @param identity File identity
+   * @return Cached metadata, or null if the file is not in the cache.
+   */
+  public Entry get(final FileIdentity identity) {
+    if (identity == null) {
+      return null;
+    }
+    return entries.get(identity);
+  }
+
+  /**
+   * Directory that this cache is for.
+   *
+   * @return Directory
+   */
+  public Path getDirectory() {
+    return directory;
+  }
+
+  /** Removes all entries, and deletes the saved cache. */
+  public void invalidate() {
+    entries.clear();
+    dirty = false;
+    try {
+      Files.deleteIfExists(cacheFile);
+    } catch (final IOException e) {
+      logger.log(Level.WARNING, "Could not delete metadata cache " + cacheFile, e);
+    }
+  }
+
+  /**
+   * Adds metadata for a file to the cache.
+   *
+   * @param identity File identity
+   * @param instant Earliest creation instant from the image metadata, or null
+   * @param comment Image caption
+   */
+  public void put(final FileIdentity identity, final Instant instant, final String comment) {
+    if (identity == null) {
+      return;
+    }
+    entries.put(identity, new Entry(instant, comment));
+    dirty = true;
+  }
+
+  /**
+   * Removes entries for files other than the ones provided, so that the cache does not grow with
+   * files that have been deleted or modified.
+   *
+   * @param identities Identities of the files to keep
+   */
+  public void retainAll(final Collection<FileIdentity> identities) {
+    final Set<FileIdentity> retained = new HashSet<>(identities);
+    if (entries.keySet().retainAll(retained)) {
+      dirty = true;
+    }
+  }
+
+  /** Saves the cache, if it has changed since it was loaded or last saved. */
+  public void save() {
+    if (!dirty) {
+      return;
+    }
+    // Entries that change while the cache is written mark it as changed again, so the flag is
+    // cleared before the entries are copied, and set again if the cache cannot be saved
+    dirty = false;
+
+    try {
+      Files.createDirectories(cacheFile.getParent());
+      final Path tempFile = Files.createTempFile(cacheFile.getParent(), "metadata-", ".tmp");
+      try {
+        writeEntries(tempFile);
+        Files.move(
+            tempFile,
+            cacheFile,
+            StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        Files.deleteIfExists(tempFile);
+      }
+      logger.log(
+          Level.FINE, "Saved %d entries to metadata cache %s".formatted(entries.size(), cacheFile));
+    } catch (final IOException | RuntimeException e) {
+      dirty = true;
+      logger.log(Level.WARNING, "Could not save metadata cache " + cacheFile, e);
+    }
+  }
+
+  /**
+   * Number of cached entries.
+   *
+   * @return Number of entries
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  private void writeEntries(final Path file) throws IOException {
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(FORMAT_VERSION);
+      out.writeUTF(directory.toString());
+
+      final Map<FileIdentity, Entry> snapshot = Map.copyOf(entries);
+      out.writeInt(snapshot.size());
+      for (final Map.Entry<FileIdentity, Entry> mapEntry : snapshot.entrySet()) {
+        final FileIdentity identity = mapEntry.getKey();
+        final Entry entry = mapEntry.getValue();
+        out.writeLong(identity.getSize());
+        out.writeLong(identity.getLastModified());
+        out.writeUTF(identity.getKey());
+        final Instant instant = entry.getInstant();
+        out.writeBoolean(instant != null);
+        if (instant != null) {
+          out.writeLong(instant.getEpochSecond());
+          out.writeInt(instant.getNano());
+        }
+        out.writeUTF(entry.getComment());
+      }
+    }
+  }
+
+  private void load() {
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+      if (in.readInt() != MAGIC
+          || in.readInt() != FORMAT_VERSION
+          || !directory.toString().equals(in.readUTF())) {
+        logger.log(Level.CONFIG, "Discarding incompatible metadata cache " + cacheFile);
+        invalidate();
+        return;
+      }
+
+      final int size = in.readInt();
+      for (int i = 0; i < size; i++) {
+        final long fileSize = in.readLong();
+        final long lastModified = in.readLong();
+        final String key = in.readUTF();
+        Instant instant = null;
+        if (in.readBoolean()) {
+          instant = Instant.ofEpochSecond(in.readLong(), in.readInt());
+        }
+        final String comment = in.readUTF();
+        entries.put(new FileIdentity(fileSize, lastModified, key), new Entry(instant, comment));
+      }
+      logger.log(Level.FINE, "Loaded %d entries from metadata cache %s".formatted(size, cacheFile));
+    } catch (final NoSuchFileException e) {
+      // No metadata has been cached for this directory yet
+    } catch (final IOException | RuntimeException e) {
+      logger.log(Level.CONFIG, "Discarding unreadable metadata cache " + cacheFile, e);
+      invalidate();
+    }
+  }
+}
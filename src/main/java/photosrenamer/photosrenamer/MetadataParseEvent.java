@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2004-2026, Sualeh Fatehi <sualeh@hotmail.com>
+ * This work is licensed under the Creative Commons Attribution-Noncommercial-No Derivative Works 3.0 License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/3.0/
+ * or send a letter to Creative Commons, 543 Howard Street, 5th Floor, San Francisco, California, 94105, USA.
+ */
+package photosrenamer.photosrenamer;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for loading the date and caption of a photo.
+ *
+ * @author Sualeh Fatehi
+ */
+@Name("photosrenamer.MetadataParse")
+@Label("Metadata Parse")
+@Category({"Photos Renamer", "Loading"})
+@Description("Reading and parsing the metadata of a photo, or looking it up in the metadata cache")
+@StackTrace(false)
+final class MetadataParseEvent extends Event {
+
+  @Label("Path")
+  String path;
+
+  @Label("Bytes Read")
+  @DataAmount
+  long bytesRead;
+
+  @Label("From Cache")
+  boolean cached;
+}
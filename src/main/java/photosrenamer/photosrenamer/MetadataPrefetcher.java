@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2004-2026, Sualeh Fatehi <sualeh@hotmail.com>
+ * This work is licensed under the Creative Commons Attribution-Noncommercial-No Derivative Works 3.0 License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/3.0/
+ * or send a letter to Creative Commons, 543 Howard Street, 5th Floor, San Francisco, California, 94105, USA.
+ */
+package photosrenamer.photosrenamer;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Loads image metadata, such as creation dates, for many file items in parallel, so that file items
+ * can be sorted by date without waiting for each thumbnail to be shown.
+ *
+ * @author Sualeh Fatehi
+ */
+public final class MetadataPrefetcher {
+
+  /** Receives progress of loading metadata. */
+  @FunctionalInterface
+  public interface ProgressListener {
+
+    /**
+     * Called after metadata has been loaded for each file item, on the thread that loaded it.
+     *
+     * @param loaded Number of file items loaded so far
+     * @param total Total number of file items
+     */
+    void progress(int loaded, int total);
+  }
+
+  private static final Logger logger = Logger.getGlobal();
+
+  /**
+   * Number of threads, which can be set with the "photosrenamer.prefetch.threads" system property.
+   * Defaults to the number of processors.
+   *
+   * @return Number of threads
+   */
+  public static int defaultThreadCount() {
+    final int processors = Runtime.getRuntime().availableProcessors();
+    return Math.max(1, Integer.getInteger("photosrenamer.prefetch.threads", processors));
+  }
+
+  private final ExecutorService executor;
+
+  /** Creates a metadata prefetcher with the default number of threads. */
+  public MetadataPrefetcher() {
+    this(defaultThreadCount());
+  }
+
+  /**
+   * Creates a metadata prefetcher.
+   *
+   * @param threads Number of threads
+   */
+  public MetadataPrefetcher(final int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("At least one thread is needed");
+    }
+
+    final AtomicInteger threadCount = new AtomicInteger();
+    final ThreadFactory threadFactory =
+        runnable -> {
+          final Thread thread =
+              new Thread(runnable, "photosrenamer-prefetch-" + threadCount.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        };
+    executor = Executors.newFixedThreadPool(threads, threadFactory);
+  }
+
+  /**
+   * Loads metadata for file items in the background. Cancelling the returned future skips the file
+   * items that have not been started yet.
+   *
+   * @param fileItems File items to load
+   * @param listener Progress listener, or null
+   * @return Future that completes when metadata for all file items has been loaded
+   */
+  public CompletableFuture<Void> prefetch(
+      final List<FileItem> fileItems, final ProgressListener listener) {
+    final CompletableFuture<Void> result = new CompletableFuture<>();
+    final List<FileItem> items = List.copyOf(fileItems);
+    final int total = items.size();
+    if (total == 0) {
+      result.complete(null);
+      return result;
+    }
+
+    final AtomicInteger loaded = new AtomicInteger();
+    for (final FileItem fileItem : items) {
+      executor.execute(
+          () -> {
+            if (result.isDone()) {
+              return;
+            }
+            try {
+              fileItem.loadMetadata();
+            } catch (final Exception e) {
+              logger.log(Level.FINE, fileItem.toString(), e);
+            }
+
+            final int count = loaded.incrementAndGet();
+            if (listener != null) {
+              listener.progress(count, total);
+            }
+            if (count == total) {
+              result.complete(null);
+            }
+          });
+    }
+    return result;
+  }
+
+  /** Stops the threads, after loading metadata that has already been requested. */
+  public void shutdown() {
+    executor.shutdown();
+  }
+}
@@ -0,0 +1,332 @@
+/*
+ * Copyright (c) 2004-2026, Sualeh Fatehi <sualeh@hotmail.com>
+ * This work is licensed under the Creative Commons Attribution-Noncommercial-No Derivative Works 3.0 License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/3.0/
+ * or send a letter to Creative Commons, 543 Howard Street, 5th Floor, San Francisco, California, 94105, USA.
+ */
+package photosrenamer.photosrenamer;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counters and latency histograms for loading and renaming photos, shared by the whole
+ * application, to help tune the number of worker threads on different machines. The metrics are
+ * registered with the platform MBean server as "photosrenamer:type=Metrics".
+ *
+ * @author Sualeh Fatehi
+ */
+public final class Metrics implements MetricsMXBean {
+
+  private static final class DefaultMetrics {
+
+    /** Shared metrics. Created and registered on first use. */
+    private static final Metrics METRICS = register(new Metrics());
+  }
+
+  /** Counts events, and measures their rate between readings. */
+  private static final class Meter {
+
+    private static final long MIN_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final LongAdder count = new LongAdder();
+    private long sampleNanos = System.nanoTime();
+    private long sampleCount;
+    private double rate;
+
+    long getCount() {
+      return count.sum();
+    }
+
+    synchronized double getRate() {
+      final long nanos = System.nanoTime();
+      final long elapsedNanos = nanos - sampleNanos;
+      if (elapsedNanos >= MIN_INTERVAL_NANOS) {
+        final long currentCount = count.sum();
+        rate = (currentCount - sampleCount) * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+        sampleNanos = nanos;
+        sampleCount = currentCount;
+      }
+      return rate;
+    }
+
+    void mark(final long events) {
+      count.add(events);
+    }
+
+    synchronized void reset() {
+      count.reset();
+      sampleNanos = System.nanoTime();
+      sampleCount = 0;
+      rate = 0;
+    }
+  }
+
+  private static final Logger logger = Logger.getGlobal();
+
+  /**
+   * Gets the metrics that are shared by the whole application.
+   *
+   * @return Shared metrics
+   */
+  public static Metrics getInstance() {
+    return DefaultMetrics.METRICS;
+  }
+
+  private static Metrics register(final Metrics metrics) {
+    try {
+      ManagementFactory.getPlatformMBeanServer()
+          .registerMBean(metrics, new ObjectName("photosrenamer:type=Metrics"));
+    } catch (final JMException | SecurityException e) {
+      logger.log(Level.FINE, "Metrics are not available through JMX", e);
+    }
+    return metrics;
+  }
+
+  private static long thumbnailHitCount() {
+    if (ThumbnailArena.isEnabled()) {
+      return ThumbnailArena.getInstance().getHitCount();
+    }
+    return ThumbnailCache.getInstance().getHitCount();
+  }
+
+  private static long thumbnailMissCount() {
+    if (ThumbnailArena.isEnabled()) {
+      return ThumbnailArena.getInstance().getMissCount();
+    }
+    return ThumbnailCache.getInstance().getMissCount();
+  }
+
+  private final LongAdder filesScanned;
+  private final LongAdder metadataCacheHits;
+  private final Meter metadataLoads;
+  private final LatencyHistogram metadataLoadTimes;
+  private final Meter thumbnailLoads;
+  private final LatencyHistogram thumbnailLoadTimes;
+  private final LongAdder thumbnailLoadsCancelled;
+  private final Meter renameMoves;
+  private final LatencyHistogram renameMoveTimes;
+  private volatile IntSupplier pendingLoads;
+  private volatile long thumbnailHitsAtReset;
+  private volatile long thumbnailMissesAtReset;
+
+  private Metrics() {
+    filesScanned = new LongAdder();
+    metadataCacheHits = new LongAdder();
+    metadataLoads = new Meter();
+    metadataLoadTimes = new LatencyHistogram();
+    thumbnailLoads = new Meter();
+    thumbnailLoadTimes = new LatencyHistogram();
+    thumbnailLoadsCancelled = new LongAdder();
+    renameMoves = new Meter();
+    renameMoveTimes = new LatencyHistogram();
+    pendingLoads = () -> 0;
+  }
+
+  @Override
+  public long getFilesScanned() {
+    return filesScanned.sum();
+  }
+
+  @Override
+  public long getMetadataCacheHits() {
+    return metadataCacheHits.sum();
+  }
+
+  @Override
+  public long getMetadataLoads() {
+    return metadataLoads.getCount();
+  }
+
+  @Override
+  public double getMetadataLoadMillisP50() {
+    return metadataLoadTimes.getPercentileMillis(50);
+  }
+
+  @Override
+  public double getMetadataLoadMillisP99() {
+    return metadataLoadTimes.getPercentileMillis(99);
+  }
+
+  @Override
+  public double getMetadataLoadsPerSecond() {
+    return metadataLoads.getRate();
+  }
+
+  @Override
+  public int getPendingLoads() {
+    return pendingLoads.getAsInt();
+  }
+
+  @Override
+  public long getRenameMoves() {
+    return renameMoves.getCount();
+  }
+
+  @Override
+  public double getRenameMoveMillisP50() {
+    return renameMoveTimes.getPercentileMillis(50);
+  }
+
+  @Override
+  public double getRenameMoveMillisP99() {
+    return renameMoveTimes.getPercentileMillis(99);
+  }
+
+  @Override
+  public double getRenameMovesPerSecond() {
+    return renameMoves.getRate();
+  }
+
+  @Override
+  public double getThumbnailHitRate() {
+    final long hits = getThumbnailHits();
+    final long lookups = hits + getThumbnailMisses();
+    return lookups == 0 ? 0 : hits / (double) lookups;
+  }
+
+  @Override
+  public long getThumbnailHits() {
+    return thumbnailHitCount() - thumbnailHitsAtReset;
+  }
+
+  @Override
+  public long getThumbnailLoads() {
+    return thumbnailLoads.getCount();
+  }
+
+  @Override
+  public long getThumbnailLoadsCancelled() {
+    return thumbnailLoadsCancelled.sum();
+  }
+
+  @Override
+  public double getThumbnailLoadMillisP50() {
+    return thumbnailLoadTimes.getPercentileMillis(50);
+  }
+
+  @Override
+  public double getThumbnailLoadMillisP99() {
+    return thumbnailLoadTimes.getPercentileMillis(99);
+  }
+
+  @Override
+  public double getThumbnailLoadsPerSecond() {
+    return thumbnailLoads.getRate();
+  }
+
+  @Override
+  public long getThumbnailMisses() {
+    return thumbnailMissCount() - thumbnailMissesAtReset;
+  }
+
+  /**
+   * Records image files found in a directory listing.
+   *
+   * @param fileCount Number of image files
+   */
+  public void recordFilesScanned(final int fileCount) {
+    filesScanned.add(fileCount);
+  }
+
+  /** Records finding the metadata of a file in the metadata cache. */
+  public void recordMetadataCacheHit() {
+    metadataCacheHits.increment();
+  }
+
+  /**
+   * Records reading the metadata of a file from the file.
+   *
+   * @param nanos Time taken, in nanoseconds
+   */
+  public void recordMetadataLoad(final long nanos) {
+    metadataLoads.mark(1);
+    metadataLoadTimes.record(nanos);
+  }
+
+  /**
+   * Records moving a file while renaming.
+   *
+   * @param nanos Time taken, in nanoseconds
+   */
+  public void recordRenameMove(final long nanos) {
+    renameMoves.mark(1);
+    renameMoveTimes.record(nanos);
+  }
+
+  /**
+   * Records loading a thumbnail.
+   *
+   * @param nanos Time taken, in nanoseconds
+   */
+  public void recordThumbnailLoad(final long nanos) {
+    thumbnailLoads.mark(1);
+    thumbnailLoadTimes.record(nanos);
+  }
+
+  /**
+   * Records queued thumbnail loads that were cancelled.
+   *
+   * @param loadCount Number of cancelled loads
+   */
+  public void recordThumbnailLoadsCancelled(final int loadCount) {
+    thumbnailLoadsCancelled.add(loadCount);
+  }
+
+  @Override
+  public void reset() {
+    filesScanned.reset();
+    metadataCacheHits.reset();
+    metadataLoads.reset();
+    metadataLoadTimes.reset();
+    thumbnailLoads.reset();
+    thumbnailLoadTimes.reset();
+    thumbnailLoadsCancelled.reset();
+    // The thumbnail cache and arena counters are not reset, since they are shared
+    thumbnailHitsAtReset = thumbnailHitCount();
+    thumbnailMissesAtReset = thumbnailMissCount();
+    renameMoves.reset();
+    renameMoveTimes.reset();
+  }
+
+  /**
+   * Sets where the number of pending thumbnail loads is read from.
+   *
+   * @param pendingLoads Supplies the number of pending loads, or null if there is no queue
+   */
+  public void setPendingLoads(final IntSupplier pendingLoads) {
+    this.pendingLoads = pendingLoads == null ? () -> 0 : pendingLoads;
+  }
+
+  @Override
+  public String toString() {
+    return ("%d files scanned; metadata: %d cached, %d loads, %.0f/s, p50 %.1f ms, p99 %.1f ms;"
+            + " thumbnails: %d loads, %.0f/s, p50 %.1f ms, p99 %.1f ms, %.0f%% hits, %d pending,"
+            + " %d cancelled;"
+            + " moves: %d, %.0f/s, p50 %.1f ms, p99 %.1f ms")
+        .formatted(
+            getFilesScanned(),
+            getMetadataCacheHits(),
+            getMetadataLoads(),
+            getMetadataLoadsPerSecond(),
+            getMetadataLoadMillisP50(),
+            getMetadataLoadMillisP99(),
+            getThumbnailLoads(),
+            getThumbnailLoadsPerSecond(),
+            getThumbnailLoadMillisP50(),
+            getThumbnailLoadMillisP99(),
+            getThumbnailHitRate() * 100,
+            getPendingLoads(),
+            getThumbnailLoadsCancelled(),
+            getRenameMoves(),
+            getRenameMovesPerSecond(),
+            getRenameMoveMillisP50(),
+            getRenameMoveMillisP99());
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2004-2026, Sualeh Fatehi <sualeh@hotmail.com>
+ * This work is licensed under the Creative Commons Attribution-Noncommercial-No Derivative Works 3.0 License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/3.0/
+ * or send a letter to Creative Commons, 543 Howard Street, 5th Floor, San Francisco, California, 94105, USA.
+ */
+package photosrenamer.photosrenamer;
+
+/**
+ * Management interface for the metrics of loading and renaming photos, for use with JConsole or
+ * other JMX clients. Rates are measured since the previous reading, or over at least a second.
+ * Durations are in milliseconds.
+ *
+ * @author Sualeh Fatehi
+ */
+public interface MetricsMXBean {
+
+  /**
+   * Number of image files found in directory listings.
+   *
+   * @return File count
+   */
+  long getFilesScanned();
+
+  /**
+   * Number of times metadata was found in the metadata cache, instead of being read from the file.
+   *
+   * @return Cache hit count
+   */
+  long getMetadataCacheHits();
+
+  /**
+   * Number of times metadata was read from the file, not counting metadata cache hits.
+   *
+   * @return Load count
+   */
+  long getMetadataLoads();
+
+  /**
+   * Median time to read metadata from a file.
+   *
+   * @return Milliseconds
+   */
+  double getMetadataLoadMillisP50();
+
+  /**
+   * 99th percentile time to read metadata from a file.
+   *
+   * @return Milliseconds
+   */
+  double getMetadataLoadMillisP99();
+
+  /**
+   * Metadata reads from files per second.
+   *
+   * @return Rate
+   */
+  double getMetadataLoadsPerSecond();
+
+  /**
+   * Number of thumbnail loads waiting or running in the background.
+   *
+   * @return Queue depth
+   */
+  int getPendingLoads();
+
+  /**
+   * Number of files moved while renaming.
+   *
+   * @return Move count
+   */
+  long getRenameMoves();
+
+  /**
+   * Median time to move a file.
+   *
+   * @return Milliseconds
+   */
+  double getRenameMoveMillisP50();
+
+  /**
+   * 99th percentile time to move a file.
+   *
+   * @return Milliseconds
+   */
+  double getRenameMoveMillisP99();
+
+  /**
+   * Files moved per second while renaming.
+   *
+   * @return Rate
+   */
+  double getRenameMovesPerSecond();
+
+  /**
+   * Fraction of thumbnails that were ready when their rows came into view, from the hit and miss
+   * counts of the thumbnail cache, or of the thumbnail arena when it is used.
+   *
+   * @return Hit rate, from 0 to 1
+   */
+  double getThumbnailHitRate();
+
+  /**
+   * Number of times a thumbnail was ready when its row came into view.
+   *
+   * @return Hit count
+   */
+  long getThumbnailHits();
+
+  /**
+   * Number of times a thumbnail was still to be loaded when its row came into view.
+   *
+   * @return Miss count
+   */
+  long getThumbnailMisses();
+
+  /**
+   * Number of thumbnails created or loaded from the thumbnail store.
+   *
+   * @return Load count
+   */
+  long getThumbnailLoads();
+
+  /**
+   * Number of queued thumbnail loads that were cancelled, because their rows were scrolled far out
+   * of view.
+   *
+   * @return Cancelled load count
+   */
+  long getThumbnailLoadsCancelled();
+
+  /**
+   * Median time to load a thumbnail, including its metadata if needed.
+   *
+   * @return Milliseconds
+   */
+  double getThumbnailLoadMillisP50();
+
+  /**
+   * 99th percentile time to load a thumbnail, including its metadata if needed.
+   *
+   * @return Milliseconds
+   */
+  double getThumbnailLoadMillisP99();
+
+  /**
+   * Thumbnail loads per second.
+   *
+   * @return Rate
+   */
+  double getThumbnailLoadsPerSecond();
+
+  /** Sets all counters and histograms back to zero, for example before trying other settings. */
+  void reset();
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2004-2026, Sualeh Fatehi <sualeh@hotmail.com>
+ * This work is licensed under the Creative Commons Attribution-Noncommercial-No Derivative Works 3.0 License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/3.0/
+ * or send a letter to Creative Commons, 543 Howard Street, 5th Floor, San Francisco, California, 94105, USA.
+ */
+package photosrenamer.photosrenamer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.FileHandler;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.logging.SimpleFormatter;
+import photosrenamer.photosrenamer.RenamePlan.Move;
+
+/**
+ * Runs the moves in a rename plan, stage by stage, and records each completed stage in the rename
+ * journal. Moves in a stage are run at the same time. If any move fails, the moves already started
+ * are allowed to finish, no further stages are started, and the journal is kept, so that the
+ * rename can be resumed or rolled back.
+ *
+ * @author Sualeh Fatehi
+ */
+final class RenameExecutor {
+
+  private static final Logger logger = Logger.getGlobal();
+
+  private static final boolean DEBUG_FORCE_EXCEPTION = false;
+  private static final boolean DEBUG_FORCE_SLOWDOWN = false;
+
+  private final Path directory;
+  private final int parallelism;
+  private final String description;
+
+  /**
+   * Creates an executor.
+   *
+   * @param directory Directory for the error log
+   * @param parallelism Number of files to move at the same time
+   * @param description Description of the rename, for the error log
+   */
+  RenameExecutor(final Path directory, final int parallelism, final String description) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("At least one file needs to be moved at a time");
+    }
+    this.directory = directory;
+    this.parallelism = parallelism;
+    this.description = description;
+  }
+
+  /**
+   * Runs the moves in a rename plan. The journal is deleted when all moves have been made.
+   *
+   * @param plan Rename plan
+   * @param journal Journal for the plan
+   */
+  void run(final RenamePlan plan, final RenameJournal journal) {
+    final ExecutorService executor = parallelism > 1 ? newExecutor() : null;
+    try {
+      // Stop before the next stage if any move fails, since it may depend on the failed move
+      for (final List<Move> stage : plan.getStages()) {
+        final Map<Move, Throwable> failures = makeMoves(stage, executor);
+        if (!failures.isEmpty()) {
+          reportFailures(plan, failures);
+        }
+        journal.stageDone();
+      }
+      journal.complete();
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      journal.close();
+      if (executor != null) {
+        executor.shutdownNow();
+      }
+    }
+  }
+
+  private void closeFileLogger(final FileHandler handler) {
+    handler.close();
+    logger.removeHandler(handler);
+  }
+
+  private void logMoves(final RenamePlan plan) {
+    final StringBuilder buffer = new StringBuilder();
+    buffer.append("\n");
+    int stageNumber = 0;
+    for (final List<Move> stage : plan.getStages()) {
+      stageNumber = stageNumber + 1;
+      for (final Move move : stage) {
+        buffer.append("%d: %s%n".formatted(stageNumber, move));
+      }
+    }
+    logger.log(Level.INFO, buffer.toString());
+  }
+
+  private Map<Move, Throwable> makeMoves(final List<Move> stage, final ExecutorService executor) {
+    final Map<Move, Throwable> failures = new LinkedHashMap<>();
+    if (executor == null || stage.size() == 1) {
+      for (final Move move : stage) {
+        try {
+          move(move);
+        } catch (final Exception e) {
+          failures.put(move, e);
+          break;
+        }
+      }
+      return failures;
+    }
+
+    final List<Future<?>> futures = new ArrayList<>(stage.size());
+    for (final Move move : stage) {
+      futures.add(
+          executor.submit(
+              () -> {
+                move(move);
+                return null;
+              }));
+    }
+    // Wait for all moves in the stage, so that none are still running after a failure
+    for (int i = 0; i < futures.size(); i++) {
+      try {
+        futures.get(i).get();
+      } catch (final ExecutionException e) {
+        failures.put(stage.get(i), e.getCause());
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        failures.put(stage.get(i), e);
+      }
+    }
+    return failures;
+  }
+
+  private void move(final Move move) throws Exception {
+    if (DEBUG_FORCE_EXCEPTION) {
+      throw new RuntimeException("Simulated exception");
+    }
+    if (DEBUG_FORCE_SLOWDOWN) {
+      TimeUnit.SECONDS.sleep(2);
+    }
+
+    final long startNanos = System.nanoTime();
+    final FileMoveEvent event = new FileMoveEvent();
+    event.begin();
+    try {
+      Files.move(move.getSource(), move.getTarget(), StandardCopyOption.ATOMIC_MOVE);
+      event.succeeded = true;
+      Metrics.getInstance().recordRenameMove(System.nanoTime() - startNanos);
+    } finally {
+      event.end();
+      if (event.shouldCommit()) {
+        event.source = move.getSource().toString();
+        event.target = move.getTarget().toString();
+        event.commit();
+      }
+    }
+  }
+
+  private ExecutorService newExecutor() {
+    final AtomicInteger threadCount = new AtomicInteger();
+    final ThreadFactory threadFactory =
+        runnable -> {
+          final Thread thread =
+              new Thread(runnable, "photosrenamer-rename-" + threadCount.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        };
+    return Executors.newFixedThreadPool(parallelism, threadFactory);
+  }
+
+  private FileHandler openFileLogger() {
+    try {
+      final String logFile = directory.resolve("photos_renamer.log").toString();
+      final FileHandler handler = new FileHandler(logFile, true);
+      handler.setFormatter(new SimpleFormatter());
+      logger.addHandler(handler);
+
+      return handler;
+    } catch (SecurityException | IOException e) {
+      logger.log(Level.SEVERE, e.getMessage(), e);
+      throw new RuntimeException(e);
+    }
+  }
+
+  private void reportFailures(final RenamePlan plan, final Map<Move, Throwable> failures) {
+    final FileHandler handler = openFileLogger();
+
+    for (final Map.Entry<Move, Throwable> failure : failures.entrySet()) {
+      logger.log(
+          Level.SEVERE,
+          "Error while renaming %s\n".formatted(failure.getKey().getSource()),
+          failure.getValue());
+    }
+
+    logger.log(Level.INFO, "%s; %s\n".formatted(description, plan));
+    logMoves(plan);
+    logger.log(
+        Level.INFO,
+        "The rename can be resumed or rolled back from %s\n"
+            .formatted(directory.resolve(RenameJournal.JOURNAL_FILE_NAME)));
+
+    closeFileLogger(handler);
+
+    final RuntimeException exception =
+        new RuntimeException("Could not rename %d files".formatted(failures.size()));
+    for (final Throwable cause : failures.values()) {
+      if (exception.getCause() == null) {
+        exception.initCause(cause);
+      } else {
+        exception.addSuppressed(cause);
+      }
+    }
+    throw exception;
+  }
+}
@@ -0,0 +1,373 @@
+/*
+ * Copyright (c) 2004-2026, Sualeh Fatehi <sualeh@hotmail.com>
+ * This work is licensed under the Creative Commons Attribution-Noncommercial-No Derivative Works 3.0 License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/3.0/
+ * or send a letter to Creative Commons, 543 Howard Street, 5th Floor, San Francisco, California, 94105, USA.
+ */
+package photosrenamer.photosrenamer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import photosrenamer.photosrenamer.RenamePlan.Move;
+
+/**
+ * Write-ahead journal of a rename, kept in the renamed directory until the rename is complete. All
+ * the planned moves are written, and forced to disk, before the first file is moved, and a short
+ * record is appended after each stage of moves. An unfinished rename can then be resumed or rolled
+ * back from the journal, without listing the directory or reading any metadata.
+ *
+ * <p>Records are written as soon as each stage is done, so none are lost if the application stops,
+ * but they are forced to disk only every {@value #FORCE_INTERVAL} stages, since a long chain of
+ * moves can have thousands of stages of a few moves each. After a system crash, the journal can
+ * then be behind the moves by some stages. When the journal is read, the stages after the last
+ * record are checked, and a stage is taken as done if all its new names exist, since new names are
+ * free until their moves are made. A name that is moved on again by a later stage, such as a
+ * temporary name, would not show that its stage was done, so a stage with such a name is always
+ * forced to disk before the next stage is started.
+ *
+ * @author Sualeh Fatehi
+ */
+public final class RenameJournal {
+
+  /** Name of the journal file, in the renamed directory. */
+  public static final String JOURNAL_FILE_NAME = "photos_renamer.journal";
+
+  private static final Logger logger = Logger.getGlobal();
+
+  private static final int MAGIC = 0x50524a4e; // "PRJN"
+  private static final int FORMAT_VERSION = 1;
+  private static final byte STAGE_DONE = 'D';
+  private static final int FORCE_INTERVAL = 64;
+
+  /**
+   * Checks whether a directory has an unfinished rename.
+   *
+   * @param directory Directory
+   * @return True if there is a rename journal in the directory
+   */
+  public static boolean exists(final Path directory) {
+    return Files.exists(directory.resolve(JOURNAL_FILE_NAME), LinkOption.NOFOLLOW_LINKS);
+  }
+
+  /**
+   * Reads the journal of an unfinished rename.
+   *
+   * @param directory Directory with the journal
+   * @return Rename journal
+   * @throws IOException On an exception reading the journal, or if there is no journal
+   */
+  public static RenameJournal open(final Path directory) throws IOException {
+    final Path absoluteDirectory = directory.toAbsolutePath().normalize();
+    final Path journalFile = absoluteDirectory.resolve(JOURNAL_FILE_NAME);
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(journalFile)))) {
+      if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+        throw new IOException("Not a rename journal: " + journalFile);
+      }
+
+      final int fileCount = in.readInt();
+      final int stageCount = in.readInt();
+      final List<List<Move>> stages = new ArrayList<>(stageCount);
+      for (int i = 0; i < stageCount; i++) {
+        final int moveCount = in.readInt();
+        final List<Move> stage = new ArrayList<>(moveCount);
+        for (int j = 0; j < moveCount; j++) {
+          final Path source = absoluteDirectory.resolve(in.readUTF());
+          final Path target = absoluteDirectory.resolve(in.readUTF());
+          stage.add(new Move(source, target));
+        }
+        stages.add(stage);
+      }
+
+      // The last record may be incomplete, if the rename was stopped while it was being written
+      int completedStages = 0;
+      try {
+        while (completedStages < stageCount
+            && in.readByte() == STAGE_DONE
+            && in.readInt() == completedStages) {
+          completedStages = completedStages + 1;
+        }
+      } catch (final EOFException e) {
+        // No more completed stages
+      }
+      // Records of the last stages may not have reached the disk
+      while (completedStages < stageCount && isMade(stages.get(completedStages))) {
+        completedStages = completedStages + 1;
+      }
+
+      return new RenameJournal(
+          absoluteDirectory, RenamePlan.of(stages, fileCount), completedStages, null, null);
+    }
+  }
+
+  /**
+   * Writes the journal for a rename plan, replacing any previous journal, and keeps it open to
+   * record completed stages.
+   *
+   * @param directory Directory for the journal
+   * @param plan Rename plan
+   * @return Rename journal
+   * @throws IOException On an exception writing the journal
+   */
+  static RenameJournal create(final Path directory, final RenamePlan plan) throws IOException {
+    final Path absoluteDirectory = directory.toAbsolutePath().normalize();
+    final Path journalFile = absoluteDirectory.resolve(JOURNAL_FILE_NAME);
+
+    final Path tempFile = Files.createTempFile(absoluteDirectory, "photos_renamer", ".tmp");
+    try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+      final DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+      out.writeInt(MAGIC);
+      out.writeInt(FORMAT_VERSION);
+      out.writeInt(plan.getFileCount());
+      out.writeInt(plan.getStages().size());
+      for (final List<Move> stage : plan.getStages()) {
+        out.writeInt(stage.size());
+        for (final Move move : stage) {
+          out.writeUTF(relativePath(absoluteDirectory, move.getSource()));
+          out.writeUTF(relativePath(absoluteDirectory, move.getTarget()));
+        }
+      }
+      out.flush();
+      channel.force(true);
+    }
+    Files.move(
+        tempFile, journalFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+    final FileChannel channel =
+        FileChannel.open(journalFile, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    return new RenameJournal(absoluteDirectory, plan, 0, channel, movedOnStages(plan));
+  }
+
+  /** Checks whether all the moves in a stage have been made, from whether their new names exist. */
+  private static boolean isMade(final List<Move> stage) {
+    for (final Move move : stage) {
+      if (!Files.exists(move.getTarget(), LinkOption.NOFOLLOW_LINKS)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Finds the stages with a new name that a later stage moves on again. */
+  private static BitSet movedOnStages(final RenamePlan plan) {
+    final List<List<Move>> stages = plan.getStages();
+    final BitSet movedOnStages = new BitSet(stages.size());
+    final Set<Path> laterSources = new HashSet<>();
+    for (int i = stages.size() - 1; i >= 0; i--) {
+      for (final Move move : stages.get(i)) {
+        if (laterSources.contains(move.getTarget())) {
+          movedOnStages.set(i);
+        }
+      }
+      for (final Move move : stages.get(i)) {
+        laterSources.add(move.getSource());
+      }
+    }
+    return movedOnStages;
+  }
+
+  private static String relativePath(final Path directory, final Path file) {
+    return directory.relativize(file.toAbsolutePath().normalize()).toString();
+  }
+
+  private final Path directory;
+  private final RenamePlan plan;
+  private final BitSet movedOnStages;
+  private int completedStages;
+  private int unforcedStages;
+  private FileChannel channel;
+
+  private RenameJournal(
+      final Path directory,
+      final RenamePlan plan,
+      final int completedStages,
+      final FileChannel channel,
+      final BitSet movedOnStages) {
+    this.directory = directory;
+    this.plan = plan;
+    this.completedStages = completedStages;
+    this.channel = channel;
+    this.movedOnStages = movedOnStages;
+  }
+
+  /**
+   * Number of stages of moves in the rename.
+   *
+   * @return Number of stages
+   */
+  public int getStageCount() {
+    return plan.getStages().size();
+  }
+
+  /**
+   * Number of stages of moves that were completed before the rename stopped, including stages that
+   * were found to be done after the last record in the journal.
+   *
+   * @return Number of completed stages
+   */
+  public int getCompletedStageCount() {
+    return completedStages;
+  }
+
+  /**
+   * Directory with the journal.
+   *
+   * @return Directory
+   */
+  public Path getDirectory() {
+    return directory;
+  }
+
+  /**
+   * Finishes the rename, making the moves that had not been made yet.
+   *
+   * @param parallelism Number of files to move at the same time
+   * @throws IOException On an exception writing the journal
+   */
+  public void resume(final int parallelism) throws IOException {
+    final List<List<Move>> stages = new ArrayList<>();
+    final List<List<Move>> plannedStages = plan.getStages();
+    for (int i = completedStages; i < plannedStages.size(); i++) {
+      if (i == completedStages) {
+        // Only the first stage that was not completed can have been started
+        stages.add(pendingMoves(plannedStages.get(i), false));
+      } else {
+        stages.add(plannedStages.get(i));
+      }
+    }
+    run(RenamePlan.of(stages, plan.getFileCount()), parallelism, "Resuming rename");
+  }
+
+  /**
+   * Undoes the rename, moving files back to their names before the rename, in reverse order.
+   *
+   * @param parallelism Number of files to move at the same time
+   * @throws IOException On an exception writing the journal
+   */
+  public void rollback(final int parallelism) throws IOException {
+    final List<List<Move>> stages = new ArrayList<>();
+    final List<List<Move>> plannedStages = plan.getStages();
+    for (int i = Math.min(completedStages, plannedStages.size() - 1); i >= 0; i--) {
+      List<Move> stage = plannedStages.get(i);
+      if (i == completedStages) {
+        stage = pendingMoves(stage, true);
+      }
+      final List<Move> reversedStage = new ArrayList<>(stage.size());
+      for (final Move move : stage) {
+        reversedStage.add(new Move(move.getTarget(), move.getSource()));
+      }
+      Collections.reverse(reversedStage);
+      stages.add(reversedStage);
+    }
+    run(RenamePlan.of(stages, plan.getFileCount()), parallelism, "Rolling back rename");
+  }
+
+  @Override
+  public String toString() {
+    return "%s: %s, %d stages completed"
+        .formatted(directory.resolve(JOURNAL_FILE_NAME), plan, completedStages);
+  }
+
+  /** Stops recording, and keeps the journal so that the rename can be resumed or rolled back. */
+  void close() {
+    if (channel == null) {
+      return;
+    }
+    try {
+      if (unforcedStages > 0) {
+        channel.force(false);
+      }
+      channel.close();
+    } catch (final IOException e) {
+      logger.log(Level.FINE, "Could not close rename journal", e);
+    }
+    channel = null;
+  }
+
+  /**
+   * Deletes the journal, once all the moves have been made.
+   *
+   * @throws IOException On an exception deleting the journal
+   */
+  void complete() throws IOException {
+    close();
+    Files.deleteIfExists(directory.resolve(JOURNAL_FILE_NAME));
+  }
+
+  /**
+   * Records that the next stage of moves has been completed. The record is forced to disk every
+   * few stages, and before a stage that moves on a name from this stage.
+   *
+   * @throws IOException On an exception writing the journal
+   */
+  void stageDone() throws IOException {
+    final ByteBuffer record = ByteBuffer.allocate(5);
+    record.put(STAGE_DONE).putInt(completedStages).flip();
+    while (record.hasRemaining()) {
+      channel.write(record);
+    }
+    unforcedStages = unforcedStages + 1;
+    if (unforcedStages >= FORCE_INTERVAL || movedOnStages.get(completedStages)) {
+      channel.force(false);
+      unforcedStages = 0;
+    }
+    completedStages = completedStages + 1;
+  }
+
+  /**
+   * Finds which moves in a stage that was started had been made, from whether the source file is
+   * still there.
+   *
+   * @param stage Stage of moves
+   * @param made Whether to return the moves that had been made, or those that had not
+   * @return Moves
+   */
+  private List<Move> pendingMoves(final List<Move> stage, final boolean made) {
+    final List<Move> moves = new ArrayList<>();
+    for (final Move move : stage) {
+      final boolean sourceExists = Files.exists(move.getSource(), LinkOption.NOFOLLOW_LINKS);
+      if (!sourceExists && !Files.exists(move.getTarget(), LinkOption.NOFOLLOW_LINKS)) {
+        logger.log(Level.WARNING, "File is missing: " + move.getSource());
+        continue;
+      }
+      if (sourceExists != made) {
+        moves.add(move);
+      }
+    }
+    return moves;
+  }
+
+  private void run(final RenamePlan remainingPlan, final int parallelism, final String description)
+      throws IOException {
+    logger.log(Level.INFO, "%s: %s".formatted(description, remainingPlan));
+    if (remainingPlan.getMoveCount() == 0) {
+      complete();
+      return;
+    }
+
+    // Replace the journal with one for the remaining moves, so that this too can be resumed
+    final RenameJournal journal = create(directory, remainingPlan);
+    new RenameExecutor(directory, parallelism, description).run(remainingPlan, journal);
+  }
+}
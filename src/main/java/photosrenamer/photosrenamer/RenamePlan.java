@@ -0,0 +1,388 @@
+/*
+ * Copyright (c) 2004-2026, Sualeh Fatehi <sualeh@hotmail.com>
+ * This work is licensed under the Creative Commons Attribution-Noncommercial-No Derivative Works 3.0 License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/3.0/
+ * or send a letter to Creative Commons, 543 Howard Street, 5th Floor, San Francisco, California, 94105, USA.
+ */
+package photosrenamer.photosrenamer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Plans the moves needed to give a list of files consecutive numbered names. Files that already
+ * have the right name are not moved. A file is moved only after the file that has its new name has
+ * been moved away, and where files would wait on each other in a cycle, one file in the cycle is
+ * first moved to a temporary name. Moves are grouped in stages: the moves in a stage do not depend
+ * on each other, and each stage depends only on the stages before it.
+ *
+ * @author Sualeh Fatehi
+ */
+final class RenamePlan {
+
+  /** Moves a file to a new name. */
+  static final class Move {
+
+    private final Path source;
+    private final Path target;
+
+    Move(final Path source, final Path target) {
+      this.source = source;
+      this.target = target;
+    }
+
+    Path getSource() {
+      return source;
+    }
+
+    Path getTarget() {
+      return target;
+    }
+
+    @Override
+    public String toString() {
+      return "%s -> %s".formatted(source.getFileName(), target.getFileName());
+    }
+  }
+
+  private static final int NOT_BLOCKED = -1;
+  private static final int MIN_SEGMENT_LENGTH = 16;
+
+  /**
+   * Computes the new name of a file: the file stem and a four digit number, keeping the extension
+   * in lower case. The file stays in its own directory.
+   *
+   * @param file File to rename
+   * @param fileStem File stem
+   * @param number Number of the file, starting with 1
+   * @return New name of the file
+   */
+  static Path targetName(final Path file, final String fileStem, final int number) {
+    return file.resolveSibling("%s_%04d.%s".formatted(fileStem, number, extension(file)));
+  }
+
+  /**
+   * Plans the moves to rename files to the file stem and consecutive numbers, in list order. Long
+   * chains of moves, where each move waits on the one before, are split into as many as the given
+   * number of segments that can run side by side, at the cost of one move to a temporary name for
+   * each split.
+   *
+   * @param files Files to rename, in order
+   * @param fileStem File stem
+   * @param maxSegments Number of segments to split long chains into, usually the number of moves
+   *     that can run at the same time
+   * @return Rename plan
+   * @throws IOException On an exception checking existing files
+   * @throws IllegalArgumentException If a new name is taken by a file that is not being renamed
+   */
+  static RenamePlan plan(final List<Path> files, final String fileStem, final int maxSegments)
+      throws IOException {
+    final int size = files.size();
+    final Path[] sources = files.toArray(new Path[size]);
+    final Path[] targets = new Path[size];
+    final Map<Path, Integer> sourceIndexes = new HashMap<>(size * 2);
+    for (int i = 0; i < size; i++) {
+      targets[i] = targetName(sources[i], fileStem, i + 1);
+      if (sourceIndexes.put(sources[i], i) != null) {
+        throw new IllegalArgumentException("File is listed twice: " + sources[i]);
+      }
+    }
+
+    // Find the file, if any, that has to move away before each file can be moved
+    final SameFiles sameFiles = new SameFiles(sources);
+    final int[] blockers = new int[size];
+    final int[] waiters = new int[size];
+    Arrays.fill(blockers, NOT_BLOCKED);
+    Arrays.fill(waiters, NOT_BLOCKED);
+    for (int i = 0; i < size; i++) {
+      if (sources[i].equals(targets[i])) {
+        continue;
+      }
+
+      Integer blocker = sourceIndexes.get(targets[i]);
+      if (blocker == null && Files.exists(targets[i], LinkOption.NOFOLLOW_LINKS)) {
+        // Names may differ only in case, on file systems that ignore case
+        blocker = sameFiles.indexOf(targets[i]);
+        if (blocker == null) {
+          throw new IllegalArgumentException("File already exists: " + targets[i]);
+        }
+      }
+      if (blocker != null && blocker != i) {
+        blockers[i] = blocker;
+        waiters[blocker] = i;
+      }
+    }
+
+    final Planner planner = new Planner(sources, targets, blockers, maxSegments);
+    final boolean[] sequenced = new boolean[size];
+
+    // Chains of moves, starting with a move to a free name
+    for (int i = 0; i < size; i++) {
+      if (!sources[i].equals(targets[i]) && blockers[i] == NOT_BLOCKED) {
+        planner.plan(sequence(waiters, sequenced, i), false);
+      }
+    }
+
+    // Cycles of moves, each ending with a file that is moved to a temporary name first, so that the
+    // move that waits on it can go ahead
+    for (int i = 0; i < size; i++) {
+      if (!sources[i].equals(targets[i]) && !sequenced[i]) {
+        sequenced[i] = true;
+        final List<Integer> sequence = sequence(waiters, sequenced, waiters[i]);
+        sequence.add(i);
+        planner.plan(sequence, true);
+      }
+    }
+
+    return new RenamePlan(planner.stages, size, planner.moveCount);
+  }
+
+  /**
+   * Plans the moves to rename files to the file stem and consecutive numbers, in list order, without
+   * splitting chains of moves.
+   *
+   * @param files Files to rename, in order
+   * @param fileStem File stem
+   * @return Rename plan
+   * @throws IOException On an exception checking existing files
+   * @throws IllegalArgumentException If a new name is taken by a file that is not being renamed
+   */
+  static RenamePlan plan(final List<Path> files, final String fileStem) throws IOException {
+    return plan(files, fileStem, 1);
+  }
+
+  /**
+   * Creates a rename plan from stages of moves that have already been planned.
+   *
+   * @param stages Stages of moves
+   * @param fileCount Number of files in the rename
+   * @return Rename plan
+   */
+  static RenamePlan of(final List<List<Move>> stages, final int fileCount) {
+    int moveCount = 0;
+    for (final List<Move> stage : stages) {
+      moveCount = moveCount + stage.size();
+    }
+    return new RenamePlan(stages, fileCount, moveCount);
+  }
+
+  private static String extension(final Path file) {
+    final String filename = String.valueOf(file.getFileName());
+    return filename.substring(filename.lastIndexOf('.') + 1).toLowerCase(Locale.ENGLISH);
+  }
+
+  /** Lists the moves in a chain, where each move waits on the one before it. */
+  private static List<Integer> sequence(
+      final int[] waiters, final boolean[] sequenced, final int start) {
+    final List<Integer> sequence = new ArrayList<>();
+    for (int i = start; i != NOT_BLOCKED && !sequenced[i]; i = waiters[i]) {
+      sequence.add(i);
+      sequenced[i] = true;
+    }
+    return sequence;
+  }
+
+  private static List<Move> stage(final List<List<Move>> stages, final int stage) {
+    while (stages.size() <= stage) {
+      stages.add(new ArrayList<>());
+    }
+    return stages.get(stage);
+  }
+
+  private static String temporaryName(final Path file) {
+    return "%s.%s".formatted(UUID.randomUUID(), extension(file));
+  }
+
+  /** Assigns the moves in each chain to stages. */
+  private static final class Planner {
+
+    private final Path[] sources;
+    private final Path[] targets;
+    private final int[] blockers;
+    private final int maxSegments;
+    private final boolean[] temporary;
+    private final int[] stageNumbers;
+    private final List<List<Move>> stages;
+    private int moveCount;
+
+    Planner(
+        final Path[] sources, final Path[] targets, final int[] blockers, final int maxSegments) {
+      this.sources = sources;
+      this.targets = targets;
+      this.blockers = blockers;
+      this.maxSegments = maxSegments;
+      temporary = new boolean[sources.length];
+      stageNumbers = new int[sources.length];
+      stages = new ArrayList<>();
+    }
+
+    /**
+     * Plans a chain of moves. A file that is moved to a temporary name first frees its name right
+     * away, in the first stage, so the move that waits on it does not have to wait any longer.
+     *
+     * @param sequence Moves in the chain, each waiting on the one before
+     * @param cycle Whether the first move waits on the last one
+     */
+    void plan(final List<Integer> sequence, final boolean cycle) {
+      final int length = sequence.size();
+      if (cycle) {
+        temporary[sequence.get(length - 1)] = true;
+      }
+      final int segmentLength = segmentLength(length);
+      for (int j = segmentLength - 1; j < length - 1; j = j + segmentLength) {
+        temporary[sequence.get(j)] = true;
+      }
+
+      for (final int i : sequence) {
+        final int blocker = blockers[i];
+        int stageNumber = 0;
+        if (blocker != NOT_BLOCKED) {
+          stageNumber = (temporary[blocker] ? 0 : stageNumbers[blocker]) + 1;
+        }
+
+        Path source = sources[i];
+        if (temporary[i]) {
+          final Path temporaryFile = source.resolveSibling(temporaryName(source));
+          add(0, new Move(source, temporaryFile));
+          source = temporaryFile;
+          stageNumber = Math.max(1, stageNumber);
+        }
+        add(stageNumber, new Move(source, targets[i]));
+        stageNumbers[i] = stageNumber;
+      }
+    }
+
+    private void add(final int stageNumber, final Move move) {
+      stage(stages, stageNumber).add(move);
+      moveCount = moveCount + 1;
+    }
+
+    private int segmentLength(final int length) {
+      if (maxSegments <= 1) {
+        return Integer.MAX_VALUE;
+      }
+      final int segmentLength = (length + maxSegments - 1) / maxSegments;
+      return Math.max(MIN_SEGMENT_LENGTH, segmentLength);
+    }
+  }
+
+  /**
+   * Finds which of the files is the same file as an existing path, by file key, for file systems
+   * where different names can refer to the same file.
+   */
+  private static final class SameFiles {
+
+    private final Path[] files;
+    private Map<Object, Integer> fileKeyIndexes;
+
+    SameFiles(final Path[] files) {
+      this.files = files;
+    }
+
+    Integer indexOf(final Path path) throws IOException {
+      final Object fileKey = fileKey(path);
+      if (fileKey == null) {
+        for (int i = 0; i < files.length; i++) {
+          if (Files.isSameFile(path, files[i])) {
+            return i;
+          }
+        }
+        return null;
+      }
+
+      if (fileKeyIndexes == null) {
+        fileKeyIndexes = new HashMap<>(files.length * 2);
+        for (int i = 0; i < files.length; i++) {
+          final Object key = fileKey(files[i]);
+          if (key != null) {
+            fileKeyIndexes.put(key, i);
+          }
+        }
+      }
+      return fileKeyIndexes.get(fileKey);
+    }
+
+    private Object fileKey(final Path path) throws IOException {
+      return Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS)
+          .fileKey();
+    }
+  }
+
+  private final List<List<Move>> stages;
+  private final int fileCount;
+  private final int moveCount;
+
+  private RenamePlan(final List<List<Move>> stages, final int fileCount, final int moveCount) {
+    this.stages = stages;
+    this.fileCount = fileCount;
+    this.moveCount = moveCount;
+  }
+
+  /**
+   * Number of files to be renamed, including files that already have the right name.
+   *
+   * @return Number of files
+   */
+  int getFileCount() {
+    return fileCount;
+  }
+
+  /**
+   * Number of moves in the plan, including moves to temporary names.
+   *
+   * @return Number of moves
+   */
+  int getMoveCount() {
+    return moveCount;
+  }
+
+  /**
+   * Old and new names of the files that are renamed, following moves through temporary names.
+   * Files that already have the right name are not included.
+   *
+   * @return Map of old names to new names, in the order that files are moved
+   */
+  Map<Path, Path> getRenames() {
+    // Original name of the file that each name will hold
+    final Map<Path, Path> originals = new LinkedHashMap<>(moveCount * 2);
+    for (final List<Move> stage : stages) {
+      for (final Move move : stage) {
+        final Path original = originals.remove(move.getSource());
+        originals.put(move.getTarget(), original == null ? move.getSource() : original);
+      }
+    }
+
+    final Map<Path, Path> renames = new LinkedHashMap<>(originals.size() * 2);
+    for (final Map.Entry<Path, Path> entry : originals.entrySet()) {
+      if (!entry.getKey().equals(entry.getValue())) {
+        renames.put(entry.getValue(), entry.getKey());
+      }
+    }
+    return renames;
+  }
+
+  /**
+   * Stages of moves, to be run in order.
+   *
+   * @return Stages of moves
+   */
+  List<List<Move>> getStages() {
+    return stages;
+  }
+
+  @Override
+  public String toString() {
+    return "%d files, %d moves in %d stages".formatted(fileCount, moveCount, stages.size());
+  }
+}
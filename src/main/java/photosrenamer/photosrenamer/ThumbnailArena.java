@@ -0,0 +1,351 @@
+/*
+ * Copyright (c) 2004-2026, Sualeh Fatehi <sualeh@hotmail.com>
+ * This work is licensed under the Creative Commons Attribution-Noncommercial-No Derivative Works 3.0 License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/3.0/
+ * or send a letter to Creative Commons, 543 Howard Street, 5th Floor, San Francisco, California, 94105, USA.
+ */
+package photosrenamer.photosrenamer;
+
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Off-heap store of thumbnail pixels, in fixed-size slots in direct buffers, so that the number of
+ * loaded thumbnails does not add to the heap or to garbage collection. Thumbnails are painted
+ * through one reusable image for each painting thread, instead of keeping an image for each
+ * thumbnail. When all slots are taken, the slot of the least recently used thumbnail is reused.
+ *
+ * <p>Memory is allocated in chunks of a few megabytes, as slots are first needed, so a small
+ * directory takes only a little of the memory budget. If direct memory runs out before the budget
+ * is reached, the arena stops growing, and reuses the slots it has.
+ *
+ * <p>The arena is used instead of the thumbnail cache when the "photosrenamer.thumbnail.arena"
+ * system property is set to true.
+ *
+ * @author Sualeh Fatehi
+ */
+public final class ThumbnailArena {
+
+  private static final class DefaultThumbnailArena {
+
+    /** Shared thumbnail arena. Created on first use. */
+    private static final ThumbnailArena THUMBNAIL_ARENA =
+        new ThumbnailArena(
+            FileItem.IMAGE_WIDTH, FileItem.IMAGE_HEIGHT, ThumbnailCache.defaultMaxBytes());
+  }
+
+  /** Size of each direct buffer, in bytes. Slots are spread over as many buffers as needed. */
+  private static final int CHUNK_BYTES = 4 << 20;
+
+  private static final int BYTES_PER_PIXEL = 4;
+
+  private static final boolean ENABLED = Boolean.getBoolean("photosrenamer.thumbnail.arena");
+
+  /**
+   * Gets the thumbnail arena that is shared by all file items.
+   *
+   * @return Shared thumbnail arena
+   */
+  public static ThumbnailArena getInstance() {
+    return DefaultThumbnailArena.THUMBNAIL_ARENA;
+  }
+
+  /**
+   * Whether thumbnails are kept in the thumbnail arena, instead of in the thumbnail cache on the
+   * heap.
+   *
+   * @return True if the thumbnail arena is used
+   */
+  public static boolean isEnabled() {
+    return ENABLED;
+  }
+
+  private final int width;
+  private final int height;
+  private final int slotPixels;
+  private final int slotsPerChunk;
+  private final IntBuffer[] chunks;
+  private final Map<Object, Integer> slots;
+  private final int[] freeSlots;
+  private int freeSlotCount;
+  private int slotCount;
+  private int usedSlotCount;
+  private final ThreadLocal<BufferedImage> scratchImages;
+  private final AtomicLong hits;
+  private final AtomicLong misses;
+  private final AtomicLong evictions;
+
+  /**
+   * Creates a thumbnail arena. Memory for the slots is allocated outside the heap, as the slots are
+   * first needed.
+   *
+   * @param width Thumbnail width
+   * @param height Thumbnail height
+   * @param maxBytes Memory budget in bytes, for at least one slot
+   */
+  public ThumbnailArena(final int width, final int height, final long maxBytes) {
+    this.width = width;
+    this.height = height;
+    slotPixels = width * height;
+
+    final int slotBytes = slotPixels * BYTES_PER_PIXEL;
+    slotCount = (int) Math.min(Integer.MAX_VALUE, Math.max(1, maxBytes / slotBytes));
+    slotsPerChunk = Math.max(1, Math.min(slotCount, CHUNK_BYTES / slotBytes));
+    chunks = new IntBuffer[(slotCount + slotsPerChunk - 1) / slotsPerChunk];
+
+    // Access order, so that iteration starts with the least recently used thumbnail
+    slots = new LinkedHashMap<>(256, 0.75F, true);
+    // Slots that were used and given back; slots that were never used are taken in order
+    freeSlots = new int[slotCount];
+
+    // Painting is done on the event dispatch thread, so there is usually only one
+    scratchImages =
+        ThreadLocal.withInitial(
+            () -> new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB));
+
+    hits = new AtomicLong();
+    misses = new AtomicLong();
+    evictions = new AtomicLong();
+  }
+
+  /** Removes all thumbnails. Counters are not reset. */
+  public synchronized void clear() {
+    for (final int slot : slots.values()) {
+      freeSlots[freeSlotCount] = slot;
+      freeSlotCount = freeSlotCount + 1;
+    }
+    slots.clear();
+  }
+
+  /**
+   * Checks whether a thumbnail is in the arena, without counting a hit or miss, or changing the
+   * order of eviction.
+   *
+   * @param key Thumbnail key
+   * @return True if the thumbnail is in the arena
+   */
+  public synchronized boolean contains(final Object key) {
+    return slots.containsKey(key);
+  }
+
+  /**
+   * Copies a thumbnail out of the arena into a new image on the heap, for callers that need an
+   * image of their own. Does not count a hit or miss.
+   *
+   * @param key Thumbnail key
+   * @return Thumbnail image, or null if it is not in the arena
+   */
+  public synchronized BufferedImage get(final Object key) {
+    final Integer slot = slots.get(key);
+    if (slot == null) {
+      return null;
+    }
+    final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    final int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    chunk(slot).get(offset(slot), pixels, 0, slotPixels);
+    return image;
+  }
+
+  /**
+   * Number of thumbnails evicted to make room for others.
+   *
+   * @return Eviction count
+   */
+  public long getEvictionCount() {
+    return evictions.get();
+  }
+
+  /**
+   * Thumbnail height.
+   *
+   * @return Height in pixels
+   */
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * Number of lookups that found a thumbnail.
+   *
+   * @return Hit count
+   */
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  /**
+   * Number of lookups that did not find a thumbnail.
+   *
+   * @return Miss count
+   */
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  /**
+   * Number of slots, which is the most thumbnails that can be kept.
+   *
+   * @return Slot count
+   */
+  public synchronized int getSlotCount() {
+    return slotCount;
+  }
+
+  /**
+   * Thumbnail width.
+   *
+   * @return Width in pixels
+   */
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * Checks whether a thumbnail is in the arena when it is needed, counts a hit or miss, and marks
+   * it as recently used.
+   *
+   * @param key Thumbnail key
+   * @return True if the thumbnail is in the arena
+   */
+  public synchronized boolean lookup(final Object key) {
+    if (slots.get(key) == null) {
+      misses.incrementAndGet();
+      return false;
+    }
+    hits.incrementAndGet();
+    return true;
+  }
+
+  /**
+   * Paints a thumbnail from the arena, and marks it as recently used, without counting a hit or
+   * miss. The thumbnail is copied into an image for the painting thread, and drawn after the arena
+   * is unlocked, so that thumbnails can be put into the arena while it is drawn.
+   *
+   * @param key Thumbnail key
+   * @param g Graphics context
+   * @param x Left edge
+   * @param y Top edge
+   * @return True if the thumbnail was painted, false if it is not in the arena
+   */
+  public boolean paint(final Object key, final Graphics g, final int x, final int y) {
+    final BufferedImage scratchImage = scratchImages.get();
+    final int[] scratchPixels =
+        ((DataBufferInt) scratchImage.getRaster().getDataBuffer()).getData();
+    synchronized (this) {
+      final Integer slot = slots.get(key);
+      if (slot == null) {
+        return false;
+      }
+      chunk(slot).get(offset(slot), scratchPixels, 0, slotPixels);
+    }
+    g.drawImage(scratchImage, x, y, null);
+    return true;
+  }
+
+  /**
+   * Copies a thumbnail into the arena, reusing the slot of the least recently used thumbnail if all
+   * slots are taken.
+   *
+   * @param key Thumbnail key
+   * @param thumbnail Thumbnail, of the arena thumbnail size
+   */
+  public void put(final Object key, final BufferedImage thumbnail) {
+    if (thumbnail.getWidth() != width || thumbnail.getHeight() != height) {
+      throw new IllegalArgumentException(
+          "Thumbnail is %dx%d, instead of %dx%d"
+              .formatted(thumbnail.getWidth(), thumbnail.getHeight(), width, height));
+    }
+    final int[] pixels = thumbnail.getRGB(0, 0, width, height, null, 0, width);
+
+    synchronized (this) {
+      Integer slot = slots.get(key);
+      if (slot == null) {
+        slot = takeSlot();
+        slots.put(key, slot);
+      }
+      chunk(slot).put(offset(slot), pixels, 0, slotPixels);
+    }
+  }
+
+  /**
+   * Number of thumbnails in the arena.
+   *
+   * @return Number of thumbnails
+   */
+  public synchronized int size() {
+    return slots.size();
+  }
+
+  @Override
+  public String toString() {
+    return "%d of %d thumbnail slots; %d hits, %d misses, %d evictions"
+        .formatted(size(), getSlotCount(), getHitCount(), getMissCount(), getEvictionCount());
+  }
+
+  private IntBuffer chunk(final int slot) {
+    return chunks[slot / slotsPerChunk];
+  }
+
+  private int offset(final int slot) {
+    return (slot % slotsPerChunk) * slotPixels;
+  }
+
+  /**
+   * Allocates the chunk for a slot that was never used, if it is the first slot in its chunk.
+   *
+   * @param slot Slot that was never used
+   * @return True if the slot can be used, false if direct memory ran out
+   */
+  private boolean allocateChunk(final int slot) {
+    final int chunkIndex = slot / slotsPerChunk;
+    if (chunks[chunkIndex] != null) {
+      return true;
+    }
+    final int chunkSlots = Math.min(slotsPerChunk, slotCount - chunkIndex * slotsPerChunk);
+    try {
+      chunks[chunkIndex] =
+          ByteBuffer.allocateDirect(chunkSlots * slotPixels * BYTES_PER_PIXEL)
+              .order(ByteOrder.nativeOrder())
+              .asIntBuffer();
+      return true;
+    } catch (final OutOfMemoryError e) {
+      if (slot == 0) {
+        throw e;
+      }
+      Logger.getGlobal()
+          .log(
+              Level.WARNING,
+              "Out of direct memory, so thumbnail arena is limited to %d slots".formatted(slot),
+              e);
+      slotCount = slot;
+      return false;
+    }
+  }
+
+  private int takeSlot() {
+    if (freeSlotCount > 0) {
+      freeSlotCount = freeSlotCount - 1;
+      return freeSlots[freeSlotCount];
+    }
+    if (usedSlotCount < slotCount && allocateChunk(usedSlotCount)) {
+      final int slot = usedSlotCount;
+      usedSlotCount = usedSlotCount + 1;
+      return slot;
+    }
+    final Iterator<Integer> iterator = slots.values().iterator();
+    final int slot = iterator.next();
+    iterator.remove();
+    evictions.incrementAndGet();
+    return slot;
+  }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2004-2026, Sualeh Fatehi <sualeh@hotmail.com>
+ * This work is licensed under the Creative Commons Attribution-Noncommercial-No Derivative Works 3.0 License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/3.0/
+ * or send a letter to Creative Commons, 543 Howard Street, 5th Floor, San Francisco, California, 94105, USA.
+ */
+package photosrenamer.photosrenamer;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.swing.ImageIcon;
+
+/**
+ * Memory-bounded cache of thumbnails, shared by all file items. When the thumbnails take more than
+ * the memory budget, the least recently used thumbnails are evicted, and are created again when
+ * they are next needed. Hits and misses are counted once for each time a thumbnail is needed, and
+ * not for each paint.
+ *
+ * @author Sualeh Fatehi
+ */
+public final class ThumbnailCache {
+
+  private static final class DefaultThumbnailCache {
+
+    /** Shared thumbnail cache. Created on first use. */
+    private static final ThumbnailCache THUMBNAIL_CACHE = new ThumbnailCache(defaultMaxBytes());
+  }
+
+  /** Memory for at least this many thumbnails is kept, so that a screenful fits. */
+  private static final int MIN_THUMBNAILS = 64;
+
+  private static final int BYTES_PER_PIXEL = 4;
+
+  /**
+   * Memory budget for thumbnails, which can be set in megabytes with the
+   * "photosrenamer.thumbnail.cache.mb" system property. Defaults to a quarter of the maximum heap
+   * size, up to 256 MB.
+   *
+   * @return Memory budget in bytes
+   */
+  public static long defaultMaxBytes() {
+    final long defaultMegabytes =
+        Math.min(256, Runtime.getRuntime().maxMemory() / 4 / (1024 * 1024));
+    return Long.getLong("photosrenamer.thumbnail.cache.mb", defaultMegabytes) * 1024 * 1024;
+  }
+
+  /**
+   * Gets the thumbnail cache that is shared by all file items.
+   *
+   * @return Shared thumbnail cache
+   */
+  public static ThumbnailCache getInstance() {
+    return DefaultThumbnailCache.THUMBNAIL_CACHE;
+  }
+
+  private static long sizeOf(final ImageIcon thumbnail) {
+    return (long) thumbnail.getIconWidth() * thumbnail.getIconHeight() * BYTES_PER_PIXEL;
+  }
+
+  private final long maxBytes;
+  private final Map<Object, ImageIcon> thumbnails;
+  private final AtomicLong hits;
+  private final AtomicLong misses;
+  private final AtomicLong evictions;
+  private long bytes;
+
+  /**
+   * Creates a thumbnail cache.
+   *
+   * @param maxBytes Memory budget in bytes
+   */
+  public ThumbnailCache(final long maxBytes) {
+    this.maxBytes = maxBytes;
+    // Access order, so that iteration starts with the least recently used thumbnail
+    thumbnails = new LinkedHashMap<>(256, 0.75F, true);
+    hits = new AtomicLong();
+    misses = new AtomicLong();
+    evictions = new AtomicLong();
+  }
+
+  /** Removes all thumbnails. Counters are not reset. */
+  public synchronized void clear() {
+    thumbnails.clear();
+    bytes = 0;
+  }
+
+  /**
+   * Checks whether a thumbnail is cached, without counting a hit or miss, or changing the order of
+   * eviction.
+   *
+   * @param key Thumbnail key
+   * @return True if the thumbnail is cached
+   */
+  public synchronized boolean contains(final Object key) {
+    return thumbnails.containsKey(key);
+  }
+
+  /**
+   * Looks up a thumbnail, and marks it as recently used, without counting a hit or miss, for
+   * example to paint it.
+   *
+   * @param key Thumbnail key
+   * @return Thumbnail, or null if it is not cached
+   */
+  public synchronized ImageIcon get(final Object key) {
+    return thumbnails.get(key);
+  }
+
+  /**
+   * Memory used by cached thumbnails.
+   *
+   * @return Bytes used
+   */
+  public synchronized long getBytes() {
+    return bytes;
+  }
+
+  /**
+   * Number of thumbnails evicted to stay within the memory budget.
+   *
+   * @return Eviction count
+   */
+  public long getEvictionCount() {
+    return evictions.get();
+  }
+
+  /**
+   * Number of lookups that found a thumbnail.
+   *
+   * @return Hit count
+   */
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  /**
+   * Memory budget for thumbnails.
+   *
+   * @return Maximum bytes
+   */
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  /**
+   * Number of lookups that did not find a thumbnail.
+   *
+   * @return Miss count
+   */
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  /**
+   * Checks whether a thumbnail is cached when it is needed, counts a hit or miss, and marks it as
+   * recently used.
+   *
+   * @param key Thumbnail key
+   * @return True if the thumbnail is cached
+   */
+  public synchronized boolean lookup(final Object key) {
+    final ImageIcon thumbnail = thumbnails.get(key);
+    if (thumbnail == null) {
+      misses.incrementAndGet();
+      return false;
+    }
+    hits.incrementAndGet();
+    return true;
+  }
+
+  /**
+   * Adds a thumbnail, evicting the least recently used thumbnails if the memory budget is exceeded.
+   *
+   * @param key Thumbnail key
+   * @param thumbnail Thumbnail
+   */
+  public synchronized void put(final Object key, final ImageIcon thumbnail) {
+    final long size = sizeOf(thumbnail);
+    final ImageIcon previous = thumbnails.put(key, thumbnail);
+    if (previous != null) {
+      bytes = bytes - sizeOf(previous);
+    }
+    bytes = bytes + size;
+
+    final long budget = Math.max(maxBytes, size * MIN_THUMBNAILS);
+    final Iterator<ImageIcon> iterator = thumbnails.values().iterator();
+    while (bytes > budget && iterator.hasNext()) {
+      final ImageIcon eldest = iterator.next();
+      if (eldest == thumbnail) {
+        break;
+      }
+      iterator.remove();
+      bytes = bytes - sizeOf(eldest);
+      evictions.incrementAndGet();
+    }
+  }
+
+  /**
+   * Number of cached thumbnails.
+   *
+   * @return Number of thumbnails
+   */
+  public synchronized int size() {
+    return thumbnails.size();
+  }
+
+  @Override
+  public String toString() {
+    return "%d thumbnails, %d of %d KB; %d hits, %d misses, %d evictions"
+        .formatted(
+            size(),
+            getBytes() / 1024,
+            maxBytes / 1024,
+            getHitCount(),
+            getMissCount(),
+            getEvictionCount());
+  }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2004-2026, Sualeh Fatehi <sualeh@hotmail.com>
+ * This work is licensed under the Creative Commons Attribution-Noncommercial-No Derivative Works 3.0 License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/3.0/
+ * or send a letter to Creative Commons, 543 Howard Street, 5th Floor, San Francisco, California, 94105, USA.
+ */
+package photosrenamer.photosrenamer;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for decoding the image that a thumbnail is made from.
+ *
+ * @author Sualeh Fatehi
+ */
+@Name("photosrenamer.ThumbnailDecode")
+@Label("Thumbnail Decode")
+@Category({"Photos Renamer", "Thumbnails"})
+@Description(
+    "Decoding a stored thumbnail, an embedded thumbnail, or the image itself, to make a thumbnail")
+@StackTrace(false)
+final class ThumbnailDecodeEvent extends Event {
+
+  @Label("Path")
+  String path;
+
+  @Label("Source")
+  @Description("Where the image was decoded from: store, embedded or image")
+  String source;
+
+  @Label("Width")
+  int width;
+
+  @Label("Height")
+  int height;
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2004-2026, Sualeh Fatehi <sualeh@hotmail.com>
+ * This work is licensed under the Creative Commons Attribution-Noncommercial-No Derivative Works 3.0 License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/3.0/
+ * or send a letter to Creative Commons, 543 Howard Street, 5th Floor, San Francisco, California, 94105, USA.
+ */
+package photosrenamer.photosrenamer;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Decodes images for thumbnails.
+ *
+ * @author Sualeh Fatehi
+ */
+final class ThumbnailImages {
+
+  /**
+   * Scales an image to a thumbnail of a fixed size, with a white background. The image is scaled to
+   * the width of the thumbnail, keeping the aspect ratio, and cropped to the height of the
+   * thumbnail. Large images are first halved repeatedly with bilinear interpolation, which averages
+   * neighbouring pixels, and then drawn at the final size. The result is a display-ready image.
+   *
+   * @param image Image to scale
+   * @param width Width of the thumbnail
+   * @param height Height of the thumbnail
+   * @return Thumbnail image
+   */
+  static BufferedImage scale(final BufferedImage image, final int width, final int height) {
+    final int scaledHeight =
+        Math.max(1, (int) Math.round((double) image.getHeight() * width / image.getWidth()));
+
+    BufferedImage scaledImage = image;
+    int currentWidth = image.getWidth();
+    int currentHeight = image.getHeight();
+    while (currentWidth / 2 >= width) {
+      currentWidth = currentWidth / 2;
+      currentHeight = Math.max(1, currentHeight / 2);
+
+      final BufferedImage halvedImage =
+          new BufferedImage(currentWidth, currentHeight, BufferedImage.TYPE_INT_RGB);
+      draw(halvedImage, scaledImage, currentWidth, currentHeight);
+      scaledImage = halvedImage;
+    }
+
+    final BufferedImage thumbnail = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    draw(thumbnail, scaledImage, width, scaledHeight);
+    return thumbnail;
+  }
+
+  /**
+   * Computes the source subsampling for decoding an image that will be scaled down to a given
+   * width. The decoded image is kept at about twice the target width, so that scaling down can still
+   * average neighbouring pixels.
+   *
+   * @param sourceWidth Width of the image
+   * @param targetWidth Width of the thumbnail
+   * @return Subsampling factor, at least 1
+   */
+  static int subsampling(final int sourceWidth, final int targetWidth) {
+    if (targetWidth <= 0) {
+      return 1;
+    }
+    return Math.max(1, sourceWidth / (targetWidth * 2));
+  }
+
+  /**
+   * Decodes an image, using source subsampling so that only about as many pixels as are needed for
+   * the thumbnail are produced. The image dimensions are read from the image header first.
+   *
+   * @param file Image file
+   * @param targetWidth Width of the thumbnail
+   * @return Decoded image, or null if the image format is not supported
+   * @throws IOException On an exception reading the image
+   */
+  static BufferedImage readSubsampled(final Path file, final int targetWidth) throws IOException {
+    try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+      if (in == null) {
+        return null;
+      }
+      final Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+      if (!readers.hasNext()) {
+        return null;
+      }
+
+      final ImageReader reader = readers.next();
+      try {
+        reader.setInput(in, true, true);
+
+        final int subsampling = subsampling(reader.getWidth(0), targetWidth);
+        final ImageReadParam param = reader.getDefaultReadParam();
+        param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+
+        return reader.read(0, param);
+      } finally {
+        reader.dispose();
+      }
+    }
+  }
+
+  private static void draw(
+      final BufferedImage target, final BufferedImage source, final int width, final int height) {
+    final Graphics2D g2d = target.createGraphics();
+    try {
+      g2d.setRenderingHint(
+          RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+      g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+      g2d.setColor(Color.WHITE);
+      g2d.fillRect(0, 0, target.getWidth(), target.getHeight());
+      g2d.drawImage(source, 0, 0, width, height, null);
+    } finally {
+      g2d.dispose();
+    }
+  }
+
+  private ThumbnailImages() {}
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2004-2026, Sualeh Fatehi <sualeh@hotmail.com>
+ * This work is licensed under the Creative Commons Attribution-Noncommercial-No Derivative Works 3.0 License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/3.0/
+ * or send a letter to Creative Commons, 543 Howard Street, 5th Floor, San Francisco, California, 94105, USA.
+ */
+package photosrenamer.photosrenamer;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for scaling a decoded image to a thumbnail.
+ *
+ * @author Sualeh Fatehi
+ */
+@Name("photosrenamer.ThumbnailScale")
+@Label("Thumbnail Scale")
+@Category({"Photos Renamer", "Thumbnails"})
+@Description("Scaling a decoded image to the size of a thumbnail")
+@StackTrace(false)
+final class ThumbnailScaleEvent extends Event {
+
+  @Label("Path")
+  String path;
+
+  @Label("Source Width")
+  int sourceWidth;
+
+  @Label("Source Height")
+  int sourceHeight;
+
+  @Label("Width")
+  int width;
+
+  @Label("Height")
+  int height;
+}
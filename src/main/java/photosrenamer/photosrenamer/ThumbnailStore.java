@@ -0,0 +1,332 @@
+/*
+ * Copyright (c) 2004-2026, Sualeh Fatehi <sualeh@hotmail.com>
+ * This work is licensed under the Creative Commons Attribution-Noncommercial-No Derivative Works 3.0 License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/3.0/
+ * or send a letter to Creative Commons, 543 Howard Street, 5th Floor, San Francisco, California, 94105, USA.
+ */
+package photosrenamer.photosrenamer;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * Per-user store of thumbnails on disk, as small JPEG files, so that thumbnails do not need to be
+ * created again from the photos when a directory is opened again. Thumbnails are keyed by file
+ * identity and thumbnail size, and are kept in a directory sharded by the first two characters of
+ * the key, so that no directory gets too large. When the store grows beyond its disk budget, the
+ * least recently used thumbnails are deleted, including thumbnails of photos that have since been
+ * edited or deleted. File items use the store only when they are created with a metadata cache,
+ * since both are kept in the cache directory.
+ *
+ * @author Sualeh Fatehi
+ */
+public final class ThumbnailStore {
+
+  private static final class DefaultThumbnailStore {
+
+    /** Shared thumbnail store. Created, and pruned in the background, on first use. */
+    private static final ThumbnailStore THUMBNAIL_STORE =
+        startPruning(new ThumbnailStore(MetadataCache.getCacheDirectory().resolve("thumbnails")));
+  }
+
+  /** A thumbnail file, for pruning. */
+  private static final class StoredThumbnail {
+
+    private final Path file;
+    private final long size;
+    private final long lastUsed;
+
+    StoredThumbnail(final Path file, final BasicFileAttributes attributes) {
+      this.file = file;
+      size = attributes.size();
+      lastUsed = attributes.lastModifiedTime().toMillis();
+    }
+  }
+
+  private static final Logger logger = Logger.getGlobal();
+
+  private static final float JPEG_QUALITY = 0.85F;
+  private static final long TOUCH_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+  /**
+   * Disk budget for stored thumbnails, which can be set in megabytes with the
+   * "photosrenamer.thumbnail.store.mb" system property. Defaults to 256 MB.
+   *
+   * @return Disk budget in bytes
+   */
+  public static long defaultMaxBytes() {
+    return Long.getLong("photosrenamer.thumbnail.store.mb", 256) * 1024 * 1024;
+  }
+
+  private static ThumbnailStore startPruning(final ThumbnailStore thumbnailStore) {
+    thumbnailStore.pruneInBackground();
+    return thumbnailStore;
+  }
+
+  /**
+   * Gets the thumbnail store in the per-user cache directory.
+   *
+   * @return Shared thumbnail store
+   */
+  public static ThumbnailStore getInstance() {
+    return DefaultThumbnailStore.THUMBNAIL_STORE;
+  }
+
+  private final Path directory;
+  private final long maxBytes;
+  private final AtomicLong bytes;
+  private final AtomicBoolean pruning;
+
+  /**
+   * Creates a thumbnail store with the default disk budget.
+   *
+   * @param directory Directory for the thumbnail files
+   */
+  public ThumbnailStore(final Path directory) {
+    this(directory, defaultMaxBytes());
+  }
+
+  /**
+   * Creates a thumbnail store.
+   *
+   * @param directory Directory for the thumbnail files
+   * @param maxBytes Disk budget in bytes
+   */
+  public ThumbnailStore(final Path directory, final long maxBytes) {
+    this.directory = directory;
+    this.maxBytes = maxBytes;
+    bytes = new AtomicLong();
+    pruning = new AtomicBoolean();
+  }
+
+  /**
+   * Approximate disk space used by stored thumbnails, as of the last time the store was pruned,
+   * plus thumbnails saved since.
+   *
+   * @return Bytes used
+   */
+  public long getBytes() {
+    return bytes.get();
+  }
+
+  /**
+   * Directory with the thumbnail files.
+   *
+   * @return Directory
+   */
+  public Path getDirectory() {
+    return directory;
+  }
+
+  /**
+   * Disk budget for stored thumbnails.
+   *
+   * @return Maximum bytes
+   */
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  /**
+   * Loads a stored thumbnail, with a single read of the thumbnail file, and marks it as recently
+   * used. A thumbnail is marked at most once an hour, so that showing thumbnails does not write to
+   * the store every time, and the order of pruning is accurate to about an hour.
+   *
+   * @param identity File identity
+   * @param width Thumbnail width
+   * @param height Thumbnail height
+   * @return Thumbnail, or null if no thumbnail is stored
+   */
+  public BufferedImage load(final FileIdentity identity, final int width, final int height) {
+    if (identity == null) {
+      return null;
+    }
+
+    final Path thumbnailFile = thumbnailFile(identity, width, height);
+    try {
+      final byte[] bytes = Files.readAllBytes(thumbnailFile);
+      final BufferedImage thumbnail = ImageIO.read(new ByteArrayInputStream(bytes));
+      if (thumbnail != null && thumbnail.getWidth() == width && thumbnail.getHeight() == height) {
+        touch(thumbnailFile);
+        return thumbnail;
+      }
+      logger.log(Level.CONFIG, "Discarding unreadable thumbnail " + thumbnailFile);
+      Files.deleteIfExists(thumbnailFile);
+    } catch (final NoSuchFileException e) {
+      // No thumbnail has been stored for this file yet
+    } catch (final IOException | RuntimeException e) {
+      logger.log(Level.FINE, "Could not load thumbnail " + thumbnailFile, e);
+    }
+    return null;
+  }
+
+  /**
+   * Stores a thumbnail, replacing any thumbnail stored for the same file and size.
+   *
+   * @param identity File identity
+   * @param thumbnail Thumbnail
+   */
+  public void save(final FileIdentity identity, final BufferedImage thumbnail) {
+    if (identity == null) {
+      return;
+    }
+
+    final Path thumbnailFile =
+        thumbnailFile(identity, thumbnail.getWidth(), thumbnail.getHeight());
+    try {
+      Files.createDirectories(thumbnailFile.getParent());
+      final Path tempFile = Files.createTempFile(thumbnailFile.getParent(), "thumbnail-", ".tmp");
+      try {
+        writeJpeg(thumbnail, tempFile);
+        final long size = Files.size(tempFile);
+        Files.move(
+            tempFile,
+            thumbnailFile,
+            StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+        if (bytes.addAndGet(size) > maxBytes) {
+          pruneInBackground();
+        }
+      } finally {
+        Files.deleteIfExists(tempFile);
+      }
+    } catch (final IOException | RuntimeException e) {
+      logger.log(Level.FINE, "Could not save thumbnail " + thumbnailFile, e);
+    }
+  }
+
+  /**
+   * Measures the store, and if it is over its disk budget, deletes the least recently used
+   * thumbnails until it takes no more than three quarters of the budget, so that it is not pruned
+   * again on every save.
+   */
+  public void prune() {
+    final List<StoredThumbnail> thumbnails = new ArrayList<>();
+    try {
+      if (Files.isDirectory(directory)) {
+        Files.walkFileTree(
+            directory,
+            new SimpleFileVisitor<>() {
+              @Override
+              public FileVisitResult visitFile(
+                  final Path file, final BasicFileAttributes attributes) {
+                if (attributes.isRegularFile()) {
+                  thumbnails.add(new StoredThumbnail(file, attributes));
+                }
+                return FileVisitResult.CONTINUE;
+              }
+            });
+      }
+    } catch (final IOException e) {
+      logger.log(Level.FINE, "Could not measure thumbnail store " + directory, e);
+      return;
+    }
+
+    long totalBytes = 0;
+    for (final StoredThumbnail thumbnail : thumbnails) {
+      totalBytes = totalBytes + thumbnail.size;
+    }
+    if (totalBytes > maxBytes) {
+      final long targetBytes = maxBytes / 4 * 3;
+      int deleted = 0;
+      thumbnails.sort(Comparator.comparingLong(thumbnail -> thumbnail.lastUsed));
+      for (final StoredThumbnail thumbnail : thumbnails) {
+        if (totalBytes <= targetBytes) {
+          break;
+        }
+        try {
+          Files.deleteIfExists(thumbnail.file);
+          totalBytes = totalBytes - thumbnail.size;
+          deleted = deleted + 1;
+        } catch (final IOException e) {
+          logger.log(Level.FINE, "Could not delete thumbnail " + thumbnail.file, e);
+        }
+      }
+      logger.log(
+          Level.CONFIG,
+          "Pruned %d of %d thumbnails from %s, leaving %d KB"
+              .formatted(deleted, thumbnails.size(), directory, totalBytes / 1024));
+    }
+    bytes.set(totalBytes);
+  }
+
+  /** Prunes the store on a background thread, unless it is already being pruned. */
+  private void pruneInBackground() {
+    if (!pruning.compareAndSet(false, true)) {
+      return;
+    }
+    final Thread thread =
+        new Thread(
+            () -> {
+              try {
+                prune();
+              } finally {
+                pruning.set(false);
+              }
+            },
+            "photosrenamer-thumbnail-store");
+    thread.setDaemon(true);
+    thread.setPriority(Thread.MIN_PRIORITY);
+    thread.start();
+  }
+
+  /** Marks a thumbnail file as recently used, so that it is pruned last. */
+  private void touch(final Path thumbnailFile) {
+    try {
+      final long now = System.currentTimeMillis();
+      if (now - Files.getLastModifiedTime(thumbnailFile).toMillis() >= TOUCH_INTERVAL_MILLIS) {
+        Files.setLastModifiedTime(thumbnailFile, FileTime.fromMillis(now));
+      }
+    } catch (final IOException e) {
+      logger.log(Level.FINE, "Could not mark thumbnail as used " + thumbnailFile, e);
+    }
+  }
+
+  private Path thumbnailFile(final FileIdentity identity, final int width, final int height) {
+    final String key =
+        "%d/%d/%s/%dx%d"
+            .formatted(
+                identity.getSize(), identity.getLastModified(), identity.getKey(), width, height);
+    final String name = UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)).toString();
+    return directory.resolve(name.substring(0, 2)).resolve(name + ".jpg");
+  }
+
+  private void writeJpeg(final BufferedImage thumbnail, final Path file) throws IOException {
+    final ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+    try (OutputStream out = Files.newOutputStream(file);
+        ImageOutputStream imageOut = ImageIO.createImageOutputStream(out)) {
+      writer.setOutput(imageOut);
+      final ImageWriteParam param = writer.getDefaultWriteParam();
+      param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+      param.setCompressionQuality(JPEG_QUALITY);
+      writer.write(null, new IIOImage(thumbnail, null, null), param);
+    } finally {
+      writer.dispose();
+    }
+  }
+}